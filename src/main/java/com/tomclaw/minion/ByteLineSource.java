@@ -0,0 +1,132 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads lines directly from bytes of the stream, encoded with ASCII-compatible charset,
+ * where bytes of multibyte sequences never collide with ASCII characters, like UTF-8.
+ * Bytes are read into a reusable buffer, so lines are never allocated while scanning.
+ */
+class ByteLineSource extends LineSource {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final Charset ASCII_COMPATIBLE = Charset.forName("ISO-8859-1");
+
+    private final InputStream inputStream;
+    private final Charset charset;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean skipLineFeed;
+
+    ByteLineSource(@NonNull InputStream inputStream, @NonNull Charset charset) {
+        this.inputStream = inputStream;
+        this.charset = charset;
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+    }
+
+    @Override
+    boolean nextLine() throws IOException {
+        int scan = position;
+        while (true) {
+            while (scan < limit) {
+                byte b = buffer[scan];
+                if (b == '\n' || b == '\r') {
+                    if (b == '\n' && skipLineFeed && scan == position) {
+                        // Second half of CR LF sequence.
+                        skipLineFeed = false;
+                        position = ++scan;
+                        continue;
+                    }
+                    skipLineFeed = (b == '\r');
+                    lineStart = position;
+                    lineEnd = scan;
+                    position = scan + 1;
+                    return true;
+                }
+                skipLineFeed = false;
+                scan++;
+            }
+            scan -= compact();
+            if (!fill()) {
+                if (position < limit) {
+                    lineStart = position;
+                    lineEnd = limit;
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    @Override
+    int at(int index) {
+        return buffer[index] & 0xff;
+    }
+
+    @NonNull
+    @Override
+    String decode(int from, int to) {
+        for (int c = from; c < to; c++) {
+            if (buffer[c] < 0) {
+                return new String(buffer, from, to - from, charset);
+            }
+        }
+        // ASCII fast path: bytes are mapped to chars one to one.
+        return new String(buffer, from, to - from, ASCII_COMPATIBLE);
+    }
+
+    @Override
+    void copyLine(@NonNull OutputStream outputStream) throws IOException {
+        outputStream.write(buffer, lineStart, lineEnd - lineStart);
+        outputStream.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    /**
+     * Moves unread bytes to the beginning of the buffer.
+     *
+     * @return shift of the unread bytes.
+     */
+    private int compact() {
+        int shift = position;
+        if (shift > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= shift;
+            position = 0;
+        }
+        return shift;
+    }
+
+    private boolean fill() throws IOException {
+        if (limit == buffer.length) {
+            // Line is longer than buffer.
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = inputStream.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    static boolean isSupported(@NonNull Charset charset) {
+        String name = charset.name();
+        return name.equals("UTF-8") || name.equals("US-ASCII") || name.equals("ISO-8859-1");
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Reads decoded lines of the stream, encoded with any charset.
+ */
+class CharLineSource extends LineSource {
+
+    private final BufferedReader reader;
+    private final Charset charset;
+
+    private String line;
+
+    CharLineSource(@NonNull InputStream inputStream, @NonNull Charset charset) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, charset));
+        this.charset = charset;
+    }
+
+    @Override
+    boolean nextLine() throws IOException {
+        line = reader.readLine();
+        if (line == null) {
+            return false;
+        }
+        lineStart = 0;
+        lineEnd = line.length();
+        return true;
+    }
+
+    @Override
+    int at(int index) {
+        return line.charAt(index);
+    }
+
+    @NonNull
+    @Override
+    String decode(int from, int to) {
+        return line.substring(from, to);
+    }
+
+    @Override
+    void copyLine(@NonNull OutputStream outputStream) throws IOException {
+        outputStream.write((line + '\n').getBytes(charset));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
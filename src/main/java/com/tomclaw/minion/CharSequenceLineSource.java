@@ -0,0 +1,72 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Reads lines directly from characters, that are already decoded.
+ * Lines are addressed by indexes of the whole sequence, so nothing is copied while scanning.
+ */
+class CharSequenceLineSource extends LineSource {
+
+    private final CharSequence chars;
+    private final Charset charset;
+    private final int length;
+
+    private int position;
+
+    CharSequenceLineSource(@NonNull CharSequence chars, @NonNull Charset charset) {
+        this.chars = chars;
+        this.charset = charset;
+        this.length = chars.length();
+    }
+
+    @Override
+    boolean nextLine() {
+        if (position >= length) {
+            return false;
+        }
+        int scan = position;
+        while (scan < length) {
+            char c = chars.charAt(scan);
+            if (c == '\n' || c == '\r') {
+                lineStart = position;
+                lineEnd = scan;
+                position = scan + 1;
+                if (c == '\r' && position < length && chars.charAt(position) == '\n') {
+                    position++;
+                }
+                return true;
+            }
+            scan++;
+        }
+        lineStart = position;
+        lineEnd = length;
+        position = length;
+        return true;
+    }
+
+    @Override
+    int at(int index) {
+        return chars.charAt(index);
+    }
+
+    @NonNull
+    @Override
+    String decode(int from, int to) {
+        return chars.subSequence(from, to).toString();
+    }
+
+    @Override
+    void copyLine(@NonNull OutputStream outputStream) throws IOException {
+        outputStream.write((decode(lineStart, lineEnd) + '\n').getBytes(charset));
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
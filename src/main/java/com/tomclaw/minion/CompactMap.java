@@ -0,0 +1,387 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Insertion-ordered map with string keys, that holds keys and values in parallel arrays
+ * instead of linked entry objects. Small maps are scanned linearly, larger ones are indexed
+ * by open-addressing table of positions in the arrays.
+ * Removal leaves a hole in place of the item instead of shifting following ones,
+ * holes are dropped by compaction, when they outnumber remaining items.
+ * <p>
+ * Map is not thread-safe for modification, but lookups may run concurrently with one writer.
+ * Arrays and table are published together through one volatile field and position of the item
+ * is never reused for another key in the same arrays, so lookup returns either value of the
+ * requested key or null, but never a value of another key. Null is returned for the item,
+ * that is being added or removed concurrently. Values are stored with release semantics,
+ * so value, returned by lookup, is seen fully constructed.
+ */
+class CompactMap<V> extends AbstractMap<String, V> {
+
+    /**
+     * Maps up to this size are scanned without hash table.
+     */
+    static final int LINEAR_SCAN_THRESHOLD = 8;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    @NonNull
+    private volatile Slots slots = Slots.EMPTY;
+    private int size;
+    /**
+     * Count of the used positions in the arrays, including holes of removed items.
+     */
+    private int used;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && indexOf(slots, (String) key) != -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        Slots slots = this.slots;
+        int index = indexOf(slots, (String) key);
+        return index != -1 ? (V) slots.values.get(index) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(@NonNull String key, V value) {
+        Slots slots = this.slots;
+        int index = indexOf(slots, key);
+        if (index != -1) {
+            V previous = (V) slots.values.get(index);
+            slots.values.lazySet(index, value);
+            return previous;
+        }
+        if (used == slots.keys.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+            slots = compact(Math.max(capacity, size + 1));
+        }
+        int position = used++;
+        // Value goes first, so key is never found with value of another item.
+        slots.values.lazySet(position, value);
+        slots.keys[position] = key;
+        size++;
+        int[] table = slots.table;
+        if (table != null && used * 2 <= table.length) {
+            insert(table, key, position);
+        } else if (size > LINEAR_SCAN_THRESHOLD) {
+            this.slots = new Slots(slots.keys, slots.values, buildTable(slots.keys, used));
+        }
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int index = indexOf(slots, (String) key);
+        if (index == -1) {
+            return null;
+        }
+        V previous = removeAt(index);
+        if (used - size > size) {
+            compact(Math.max(INITIAL_CAPACITY, size + (size >> 1)));
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        slots = Slots.EMPTY;
+        size = 0;
+        used = 0;
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new ArrayIterator<Entry<String, V>>() {
+                    @Override
+                    Entry<String, V> get(Slots slots, int index) {
+                        return new CompactEntry(slots, index);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @NonNull
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new ArrayIterator<String>() {
+                    @Override
+                    String get(Slots slots, int index) {
+                        return slots.keys[index];
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @NonNull
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ArrayIterator<V>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V get(Slots slots, int index) {
+                        return (V) slots.values.get(index);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int indexOf(Slots slots, String key) {
+        String[] keys = slots.keys;
+        int[] table = slots.table;
+        int hash = key.hashCode();
+        if (table == null) {
+            for (int c = 0; c < keys.length; c++) {
+                String current = keys[c];
+                if (current == key || (current != null && current.hashCode() == hash
+                        && current.equals(key))) {
+                    return c;
+                }
+            }
+            return -1;
+        }
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int position = table[slot] - 1;
+            if (position == -1) {
+                return -1;
+            }
+            String current = keys[position];
+            if (current == key || (current != null && current.equals(key))) {
+                return position;
+            }
+        }
+    }
+
+    /**
+     * Leaves a hole in place of the item. Table still refers the hole,
+     * so probing passes through it until the next compaction.
+     */
+    @SuppressWarnings("unchecked")
+    private V removeAt(int index) {
+        Slots slots = this.slots;
+        V previous = (V) slots.values.get(index);
+        // Key goes first, so removed value is not found by it's key.
+        slots.keys[index] = null;
+        slots.values.lazySet(index, null);
+        size--;
+        return previous;
+    }
+
+    /**
+     * Moves items to the new arrays of specified capacity, dropping holes, and publishes them.
+     */
+    @NonNull
+    private Slots compact(int capacity) {
+        Slots slots = this.slots;
+        String[] keys = new String[capacity];
+        AtomicReferenceArray<Object> values = new AtomicReferenceArray<>(capacity);
+        int position = 0;
+        for (int c = 0; c < used; c++) {
+            if (slots.keys[c] != null) {
+                keys[position] = slots.keys[c];
+                values.lazySet(position, slots.values.get(c));
+                position++;
+            }
+        }
+        used = position;
+        int[] table = size > LINEAR_SCAN_THRESHOLD ? buildTable(keys, used) : null;
+        slots = new Slots(keys, values, table);
+        this.slots = slots;
+        return slots;
+    }
+
+    @NonNull
+    private static int[] buildTable(String[] keys, int used) {
+        int capacity = Integer.highestOneBit(keys.length * 4 - 1);
+        int[] table = new int[capacity];
+        for (int c = 0; c < used; c++) {
+            if (keys[c] != null) {
+                insert(table, keys[c], c);
+            }
+        }
+        return table;
+    }
+
+    private static void insert(int[] table, String key, int position) {
+        int mask = table.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = position + 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Keys and values arrays with table of positions in them. They are replaced all together,
+     * so lookup never combines position from one array with another array.
+     * Keys are immutable strings, so they are stored plainly.
+     */
+    private static class Slots {
+
+        static final Slots EMPTY = new Slots(new String[0], new AtomicReferenceArray<>(0), null);
+
+        final String[] keys;
+        final AtomicReferenceArray<Object> values;
+        /**
+         * Positions of the items plus one, or zero for free slot. Null while map is small.
+         */
+        @Nullable
+        final int[] table;
+
+        Slots(String[] keys, AtomicReferenceArray<Object> values, @Nullable int[] table) {
+            this.keys = keys;
+            this.values = values;
+            this.table = table;
+        }
+
+    }
+
+    private class CompactEntry implements Map.Entry<String, V> {
+
+        private final Slots slots;
+        private final int index;
+
+        CompactEntry(Slots slots, int index) {
+            this.slots = slots;
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return slots.keys[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) slots.values.get(index);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            V previous = (V) slots.values.get(index);
+            slots.values.lazySet(index, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            Object value = getValue();
+            return getKey().equals(entry.getKey())
+                    && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+    }
+
+    private abstract class ArrayIterator<T> implements Iterator<T> {
+
+        private final Slots slots = CompactMap.this.slots;
+        private int next;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            int used = Math.min(CompactMap.this.used, slots.keys.length);
+            while (next < used && slots.keys[next] == null) {
+                next++;
+            }
+            return next < used;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return get(slots, last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            // Holes are left until the next compaction, so positions of the items stay the same.
+            removeAt(last);
+            last = -1;
+        }
+
+        abstract T get(Slots slots, int index);
+
+    }
+
+}
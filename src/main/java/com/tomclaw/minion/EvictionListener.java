@@ -0,0 +1,14 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Notified about groups, evicted from bounded {@link Minion}.
+ * Listener is called by the changing thread after change, when lock of the groups is released,
+ * so it may access Minion and wait for other threads.
+ */
+public interface EvictionListener {
+
+    void onGroupEvicted(@NonNull Minion minion, @NonNull IniGroup group);
+
+}
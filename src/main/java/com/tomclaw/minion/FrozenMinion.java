@@ -0,0 +1,518 @@
+package com.tomclaw.minion;
+
+import static com.tomclaw.minion.StreamHelper.safeClose;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable snapshot of Minion, compacted into a single flat buffer.
+ * Records are addressed by minimal perfect hash of group name and key,
+ * so lookup takes one hash calculation and one probe.
+ * Buffer may be written into file and memory-mapped later without parsing.
+ * Values and group names, that were read, are cached on heap, so besides the buffer
+ * snapshot takes one reference per record and group, even if it is mapped.
+ * Created by {@link Minion#freeze()}.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class FrozenMinion {
+
+    private static final int MAGIC = 0x4d4e465a;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 36;
+    private static final int MAX_SEED_ATTEMPTS = 1 << 24;
+
+    private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
+    private static final String[] EMPTY = new String[0];
+
+    private final ByteBuffer buffer;
+    private final int recordsCount;
+    private final int bucketsCount;
+    private final int groupsCount;
+    private final int seedsOffset;
+    private final int slotsOffset;
+    private final int groupsOffset;
+    /**
+     * Values, materialized from buffer on first access.
+     * Arrays are published safely, as snapshot is read concurrently without locks.
+     */
+    private final AtomicReferenceArray<String[]> values;
+    /**
+     * Group names, decoded on first access.
+     */
+    private final AtomicReferenceArray<String> names;
+
+    private FrozenMinion(@NonNull ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Buffer doesn't contain frozen Minion");
+        }
+        this.buffer = buffer;
+        this.recordsCount = buffer.getInt(8);
+        this.bucketsCount = buffer.getInt(12);
+        this.groupsCount = buffer.getInt(16);
+        this.seedsOffset = buffer.getInt(20);
+        this.slotsOffset = buffer.getInt(24);
+        this.groupsOffset = buffer.getInt(28);
+        this.values = new AtomicReferenceArray<>(recordsCount);
+        this.names = new AtomicReferenceArray<>(groupsCount);
+    }
+
+    @Nullable
+    public String getValue(@NonNull String name, @NonNull String key) {
+        return getValue(name, key, null);
+    }
+
+    @Nullable
+    public String getValue(@NonNull String name, @NonNull String key, @Nullable String defValue) {
+        String[] value = getValues(name, key, null);
+        if (value != null && value.length > 0) {
+            return value[0];
+        }
+        return defValue;
+    }
+
+    @Nullable
+    public String[] getValues(@NonNull String name, @NonNull String key) {
+        return getValues(name, key, null);
+    }
+
+    @Nullable
+    public String[] getValues(@NonNull String name, @NonNull String key, @Nullable String[] defValue) {
+        int slot = find(name, key);
+        if (slot == -1) {
+            return defValue;
+        }
+        String[] value = values.get(slot);
+        if (value == null) {
+            // Concurrent reads may decode the same value, any of them is cached.
+            value = readValues(buffer.getInt(slotsOffset + 4 * slot));
+            values.set(slot, value);
+        }
+        return value;
+    }
+
+    public boolean contains(@NonNull String name, @NonNull String key) {
+        return find(name, key) != -1;
+    }
+
+    /**
+     * Returns group names in the order of the source Minion.
+     */
+    @NonNull
+    public List<String> getGroupNames() {
+        List<String> result = new ArrayList<>(groupsCount);
+        for (int c = 0; c < groupsCount; c++) {
+            result.add(getGroupName(c));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns keys of the group records in the order of the source Minion.
+     */
+    @NonNull
+    public List<String> getKeys(@NonNull String name) {
+        for (int c = 0; c < groupsCount; c++) {
+            if (getGroupName(c).equals(name)) {
+                int offset = skipString(buffer.getInt(groupsOffset + 4 * c));
+                int count = readVarInt(offset);
+                offset += varIntSize(count);
+                List<String> keys = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    // Key follows check and group index of the record.
+                    keys.add(readString(buffer.getInt(offset + 4 * i) + 8));
+                }
+                return Collections.unmodifiableList(keys);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    public int getGroupsCount() {
+        return groupsCount;
+    }
+
+    public int getRecordsCount() {
+        return recordsCount;
+    }
+
+    /**
+     * Returns size of the frozen data in bytes.
+     */
+    public int getSize() {
+        return buffer.limit();
+    }
+
+    public void writeTo(@NonNull OutputStream outputStream) throws IOException {
+        ByteBuffer data = buffer.duplicate();
+        data.position(0);
+        byte[] chunk = new byte[8192];
+        while (data.hasRemaining()) {
+            int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            outputStream.write(chunk, 0, length);
+        }
+        outputStream.flush();
+    }
+
+    public void writeTo(@NonNull File file) throws IOException {
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            writeTo(outputStream);
+            outputStream.close();
+        } finally {
+            safeClose(outputStream);
+        }
+    }
+
+    /**
+     * Maps file, written with {@link #writeTo(File)}, into memory without reading it.
+     */
+    @NonNull
+    public static FrozenMinion map(@NonNull File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            return new FrozenMinion(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            safeClose(randomAccessFile);
+        }
+    }
+
+    /**
+     * Wraps buffer with frozen data, written with {@link #writeTo(OutputStream)}.
+     */
+    @NonNull
+    public static FrozenMinion wrap(@NonNull ByteBuffer buffer) {
+        return new FrozenMinion(buffer.slice());
+    }
+
+    private int find(String name, String key) {
+        if (recordsCount == 0) {
+            return -1;
+        }
+        long hash = hash(name, key);
+        int seed = buffer.getInt(seedsOffset + 4 * bucket(hash, bucketsCount));
+        int slot = seed < 0 ? -seed - 1 : slot(hash, seed, recordsCount);
+        int offset = buffer.getInt(slotsOffset + 4 * slot);
+        if (buffer.getInt(offset) != (int) hash) {
+            return -1;
+        }
+        if (getGroupName(buffer.getInt(offset + 4)).equals(name) && equalsString(offset + 8, key)) {
+            return slot;
+        }
+        return -1;
+    }
+
+    private String getGroupName(int index) {
+        String name = names.get(index);
+        if (name == null) {
+            name = readString(buffer.getInt(groupsOffset + 4 * index));
+            names.set(index, name);
+        }
+        return name;
+    }
+
+    private String[] readValues(int offset) {
+        offset = skipString(offset + 8);
+        int count = readVarInt(offset);
+        offset += varIntSize(count);
+        if (count == 0) {
+            return EMPTY;
+        }
+        String[] result = new String[count];
+        for (int c = 0; c < count; c++) {
+            result[c] = readString(offset);
+            offset = skipString(offset);
+        }
+        return result;
+    }
+
+    private String readString(int offset) {
+        int length = readVarInt(offset);
+        offset += varIntSize(length);
+        byte[] bytes = new byte[length];
+        for (int c = 0; c < length; c++) {
+            bytes[c] = buffer.get(offset + c);
+        }
+        return new String(bytes, UTF8_CHARSET);
+    }
+
+    private int skipString(int offset) {
+        int length = readVarInt(offset);
+        return offset + varIntSize(length) + length;
+    }
+
+    /**
+     * Compares encoded string with specified one without decoding, if it's ASCII.
+     */
+    private boolean equalsString(int offset, String string) {
+        int length = readVarInt(offset);
+        offset += varIntSize(length);
+        if (length == string.length()) {
+            boolean ascii = true;
+            for (int c = 0; c < length; c++) {
+                byte b = buffer.get(offset + c);
+                if (b < 0) {
+                    ascii = false;
+                    break;
+                }
+                if (b != string.charAt(c)) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        } else if (length < string.length()) {
+            // UTF-8 is never shorter than count of chars.
+            return false;
+        }
+        return readString(offset - varIntSize(length)).equals(string);
+    }
+
+    private int readVarInt(int offset) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(offset++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream stream, int value) {
+        while ((value & ~0x7f) != 0) {
+            stream.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        stream.write(value);
+    }
+
+    private static void writeString(ByteArrayOutputStream stream, String string) {
+        byte[] bytes = string.getBytes(UTF8_CHARSET);
+        writeVarInt(stream, bytes.length);
+        stream.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream stream, int value) {
+        stream.write(value >>> 24);
+        stream.write(value >>> 16);
+        stream.write(value >>> 8);
+        stream.write(value);
+    }
+
+    static long hash(String name, String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int c = 0; c < name.length(); c++) {
+            hash = (hash ^ name.charAt(c)) * 0x100000001b3L;
+        }
+        hash = (hash ^ 0xffff) * 0x100000001b3L;
+        for (int c = 0; c < key.length(); c++) {
+            hash = (hash ^ key.charAt(c)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Maps high bits of the hash into range by multiplication, that is cheaper than division.
+     */
+    private static int bucket(long hash, int bucketsCount) {
+        return (int) (((hash >>> 32) * bucketsCount) >>> 32);
+    }
+
+    private static int slot(long hash, int seed, int slotsCount) {
+        long mixed = mix(hash + seed * 0x9e3779b97f4a7c15L);
+        return (int) (((mixed & 0xffffffffL) * slotsCount) >>> 32);
+    }
+
+    /**
+     * Compacts groups and records of the Minion into frozen buffer.
+     */
+    @NonNull
+    static FrozenMinion freeze(@NonNull Collection<IniGroup> groups) {
+        List<IniGroup> groupList = new ArrayList<>(groups);
+        int count = 0;
+        for (IniGroup group : groupList) {
+            count += group.getRecordsCount();
+        }
+        final long[] hashes = new long[count];
+        int[] groupIndexes = new int[count];
+        IniRecord[] records = new IniRecord[count];
+        int index = 0;
+        for (int c = 0; c < groupList.size(); c++) {
+            IniGroup group = groupList.get(c);
+            for (IniRecord record : group.getRecords()) {
+                hashes[index] = hash(group.getName(), record.getKey());
+                groupIndexes[index] = c;
+                records[index] = record;
+                index++;
+            }
+        }
+
+        // Hash and displace: buckets are placed from the largest one,
+        // searching for seed, that maps all bucket items into free slots.
+        int bucketsCount = Math.max(1, (count + 2) / 3);
+        List<List<Integer>> buckets = new ArrayList<>(bucketsCount);
+        for (int c = 0; c < bucketsCount; c++) {
+            buckets.add(new ArrayList<Integer>());
+        }
+        for (int c = 0; c < count; c++) {
+            buckets.get(bucket(hashes[c], bucketsCount)).add(c);
+        }
+        Integer[] order = new Integer[bucketsCount];
+        for (int c = 0; c < bucketsCount; c++) {
+            order[c] = c;
+        }
+        final List<List<Integer>> sortBuckets = buckets;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return sortBuckets.get(second).size() - sortBuckets.get(first).size();
+            }
+        });
+        int[] seeds = new int[bucketsCount];
+        int[] slots = new int[count];
+        boolean[] occupied = new boolean[count];
+        int freeSlot = 0;
+        for (int bucketIndex : order) {
+            List<Integer> bucket = buckets.get(bucketIndex);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            if (bucket.size() == 1) {
+                // Single item takes any free slot directly.
+                while (occupied[freeSlot]) {
+                    freeSlot++;
+                }
+                occupied[freeSlot] = true;
+                slots[freeSlot] = bucket.get(0);
+                seeds[bucketIndex] = -freeSlot - 1;
+                continue;
+            }
+            int[] placed = new int[bucket.size()];
+            int seed = 0;
+            boolean found = false;
+            while (!found) {
+                if (++seed > MAX_SEED_ATTEMPTS) {
+                    throw new IllegalStateException("Unable to build perfect hash");
+                }
+                found = true;
+                for (int c = 0; c < bucket.size(); c++) {
+                    int slot = slot(hashes[bucket.get(c)], seed, count);
+                    if (occupied[slot]) {
+                        found = false;
+                    } else {
+                        for (int i = 0; i < c; i++) {
+                            if (placed[i] == slot) {
+                                found = false;
+                                break;
+                            }
+                        }
+                    }
+                    if (!found) {
+                        break;
+                    }
+                    placed[c] = slot;
+                }
+            }
+            for (int c = 0; c < bucket.size(); c++) {
+                occupied[placed[c]] = true;
+                slots[placed[c]] = bucket.get(c);
+            }
+            seeds[bucketIndex] = seed;
+        }
+
+        int seedsOffset = HEADER_SIZE;
+        int slotsOffset = seedsOffset + 4 * bucketsCount;
+        int groupsOffset = slotsOffset + 4 * count;
+        int dataOffset = groupsOffset + 4 * groupList.size();
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int[] recordOffsets = new int[count];
+        for (int c = 0; c < count; c++) {
+            recordOffsets[c] = dataOffset + data.size();
+            writeInt(data, (int) hashes[c]);
+            writeInt(data, groupIndexes[c]);
+            writeString(data, records[c].getKey());
+            String[] value = records[c].getValues();
+            writeVarInt(data, value.length);
+            for (String item : value) {
+                writeString(data, item);
+            }
+        }
+        int[] groupOffsets = new int[groupList.size()];
+        int recordIndex = 0;
+        for (int c = 0; c < groupList.size(); c++) {
+            IniGroup group = groupList.get(c);
+            groupOffsets[c] = dataOffset + data.size();
+            writeString(data, group.getName());
+            int recordsCount = group.getRecordsCount();
+            writeVarInt(data, recordsCount);
+            for (int i = 0; i < recordsCount; i++) {
+                writeInt(data, recordOffsets[recordIndex++]);
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(dataOffset + data.size());
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(count);
+        buffer.putInt(bucketsCount);
+        buffer.putInt(groupList.size());
+        buffer.putInt(seedsOffset);
+        buffer.putInt(slotsOffset);
+        buffer.putInt(groupsOffset);
+        buffer.putInt(dataOffset);
+        for (int seed : seeds) {
+            buffer.putInt(seed);
+        }
+        for (int slot : slots) {
+            buffer.putInt(recordOffsets[slot]);
+        }
+        for (int groupOffset : groupOffsets) {
+            buffer.putInt(groupOffset);
+        }
+        buffer.put(data.toByteArray());
+        buffer.flip();
+        return new FrozenMinion(buffer);
+    }
+
+}
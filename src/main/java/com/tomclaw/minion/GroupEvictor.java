@@ -0,0 +1,74 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Checks estimated size of the groups and asks Minion to evict
+ * least recently accessed groups, when capacity is exceeded.
+ */
+class GroupEvictor implements MutationListener {
+
+    private final Minion minion;
+    private final int maxGroups;
+    private final long maxSize;
+
+    /**
+     * @param maxGroups maximum groups count or zero, if count is not limited.
+     * @param maxSize   maximum estimated size in bytes or zero, if size is not limited.
+     */
+    GroupEvictor(@NonNull Minion minion, int maxGroups, long maxSize) {
+        this.minion = minion;
+        this.maxGroups = maxGroups;
+        this.maxSize = maxSize;
+    }
+
+    boolean isOverCapacity(int groupsCount) {
+        return (maxGroups > 0 && groupsCount > maxGroups)
+                || (maxSize > 0 && minion.getGroupsFootprint() > maxSize);
+    }
+
+    @Override
+    public void onGroupAdded(@NonNull IniGroup group) {
+        minion.trimGroups(group);
+    }
+
+    @Override
+    public void onGroupRemoved(@NonNull IniGroup group) {
+    }
+
+    @Override
+    public void onRecordAdded(@NonNull IniGroup group, @NonNull IniRecord record) {
+    }
+
+    @Override
+    public void onRecordRemoved(@NonNull IniGroup group, @NonNull IniRecord record) {
+    }
+
+    @Override
+    public void onValueChanged(@NonNull IniGroup group, @NonNull IniRecord record,
+                               @Nullable String[] oldValue) {
+    }
+
+    @Override
+    public boolean isOldValueRequired(@NonNull IniRecord record) {
+        return false;
+    }
+
+    @Override
+    public void onSizeChanged(@NonNull IniGroup group, long delta) {
+        if (delta > 0 && maxSize > 0) {
+            minion.trimGroups(group);
+        }
+    }
+
+    @Override
+    public void onCleared() {
+    }
+
+    @Override
+    public void onLockReleased() {
+        minion.deliverEvictions();
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Decides, which groups should be loaded by {@link Minion}.
+ */
+public interface GroupFilter {
+
+    boolean accept(@NonNull String name);
+
+}
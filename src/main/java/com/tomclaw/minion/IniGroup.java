@@ -3,9 +3,9 @@ package com.tomclaw.minion;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -18,14 +18,47 @@ public class IniGroup {
     private final String name;
     @NonNull
     private final Map<String, IniRecord> records;
+    @Nullable
+    private final ValueArena arena;
+    /**
+     * Guards changes of the records and their values. Groups of Minion share its lock.
+     */
+    @NonNull
+    private final Object lock;
+    @Nullable
+    private volatile MutationListener listener;
+    private volatile long estimatedSize;
+    private volatile int version;
+    /**
+     * Incremented when records are added or removed, but not on change of the values.
+     */
+    private volatile int recordsGeneration;
+    private long contentHash;
+    private int contentHashVersion = -1;
 
     protected IniGroup(@NonNull String name) {
-        this(name, new LinkedHashMap<>());
+        this(name, new CompactMap<IniRecord>());
     }
 
     protected IniGroup(@NonNull String name, @NonNull Map<String, IniRecord> records) {
+        this(name, records, null, records);
+    }
+
+    IniGroup(@NonNull String name, @Nullable ValueArena arena, @NonNull Object lock) {
+        this(name, new CompactMap<IniRecord>(), arena, lock);
+    }
+
+    private IniGroup(@NonNull String name, @NonNull Map<String, IniRecord> records,
+                     @Nullable ValueArena arena, @NonNull Object lock) {
         this.name = name.trim();
         this.records = records;
+        this.arena = arena;
+        this.lock = lock;
+        long size = SizeEstimator.groupSize(this.name);
+        for (IniRecord record : records.values()) {
+            size += SizeEstimator.recordSize(record);
+        }
+        this.estimatedSize = size;
     }
 
     @NonNull
@@ -36,13 +69,36 @@ public class IniGroup {
     @NonNull
     public IniRecord getOrCreateRecord(String key, String... value) {
         String trimmedKey = key.trim();
-        synchronized (records) {
-            IniRecord record = getRecord(trimmedKey);
+        IniRecord record;
+        synchronized (lock) {
+            record = getRecord(trimmedKey);
             if (record == null) {
                 record = addRecord(trimmedKey, value);
             }
-            return record;
         }
+        onLockReleased();
+        return record;
+    }
+
+    /**
+     * Adds record with raw value, that is split on first access, if there is no such record yet.
+     * Values of the off-heap groups are split immediately.
+     */
+    @NonNull
+    IniRecord getOrCreateRawRecord(String key, String rawValue, boolean array) {
+        if (arena != null) {
+            return getOrCreateRecord(key, IniParser.splitRaw(rawValue, array));
+        }
+        String trimmedKey = key.trim();
+        IniRecord record;
+        synchronized (lock) {
+            record = getRecord(trimmedKey);
+            if (record == null) {
+                record = attachRecord(new IniRecord(trimmedKey, rawValue, array));
+            }
+        }
+        onLockReleased();
+        return record;
     }
 
     @Nullable
@@ -50,8 +106,14 @@ public class IniGroup {
         return records.get(key);
     }
 
+    /**
+     * Returns snapshot of the records, that is safe to iterate while records are changed.
+     */
     public Collection<IniRecord> getRecords() {
-        return Collections.unmodifiableCollection(records.values());
+        synchronized (lock) {
+            return Collections.unmodifiableList(
+                    Arrays.asList(records.values().toArray(new IniRecord[0])));
+        }
     }
 
     public int getRecordsCount() {
@@ -60,16 +122,171 @@ public class IniGroup {
 
     @Nullable
     public IniRecord removeRecord(String key) {
-        return records.remove(key);
+        synchronized (lock) {
+            IniRecord record = records.remove(key);
+            if (record != null) {
+                version++;
+                recordsGeneration++;
+                record.setGroup(null);
+                long size = SizeEstimator.recordSize(record);
+                estimatedSize -= size;
+                MutationListener listener = this.listener;
+                if (listener != null) {
+                    listener.onRecordRemoved(this, record);
+                    listener.onSizeChanged(this, -size);
+                }
+                record.release();
+            }
+            return record;
+        }
     }
 
     @NonNull
     private IniRecord addRecord(String key, String... value) {
-        IniRecord record = new IniRecord(key, value);
+        return attachRecord(new IniRecord(key, arena, value));
+    }
+
+    @NonNull
+    private IniRecord attachRecord(IniRecord record) {
+        record.setGroup(this);
         records.put(record.getKey(), record);
+        version++;
+        recordsGeneration++;
+        long size = SizeEstimator.recordSize(record);
+        estimatedSize += size;
+        MutationListener listener = this.listener;
+        if (listener != null) {
+            listener.onRecordAdded(this, record);
+            listener.onSizeChanged(this, size);
+        }
         return record;
     }
 
+    /**
+     * Returns true if value of the record before change is needed by listener.
+     */
+    boolean isOldValueRequired(@NonNull IniRecord record) {
+        MutationListener listener = this.listener;
+        return listener != null && listener.isOldValueRequired(record);
+    }
+
+    /**
+     * Must be called holding the {@link #getLock() lock}.
+     */
+    void onValueChanged(@NonNull IniRecord record, @Nullable String[] oldValue, long delta) {
+        version++;
+        estimatedSize += delta;
+        MutationListener listener = this.listener;
+        if (listener != null) {
+            listener.onValueChanged(this, record, oldValue);
+            if (delta != 0) {
+                listener.onSizeChanged(this, delta);
+            }
+        }
+    }
+
+    /**
+     * Must be called after change, when the {@link #getLock() lock} is released.
+     */
+    void onLockReleased() {
+        MutationListener listener = this.listener;
+        if (listener != null) {
+            listener.onLockReleased();
+        }
+    }
+
+    /**
+     * Changes estimated size, when value of the record is resolved without change of its content.
+     * Must be called holding the {@link #getLock() lock}.
+     */
+    void onSizeChanged(long delta) {
+        estimatedSize += delta;
+        MutationListener listener = this.listener;
+        if (listener != null) {
+            listener.onSizeChanged(this, delta);
+        }
+    }
+
+    /**
+     * Moves values of the records from arena on heap, when group is removed from Minion.
+     */
+    void releaseValues() {
+        if (arena != null) {
+            for (IniRecord record : getRecords()) {
+                record.release();
+            }
+        }
+    }
+
+    /**
+     * Returns counter, that is incremented on every change of the records.
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns counter, that is incremented when records are added or removed.
+     */
+    int getRecordsGeneration() {
+        return recordsGeneration;
+    }
+
+    /**
+     * Returns order independent 64 bit hash of the records.
+     * Hash is cached and recalculated only after records were changed.
+     */
+    synchronized long getContentHash() {
+        int version = this.version;
+        if (contentHashVersion != version) {
+            long hash = 0;
+            for (IniRecord record : getRecords()) {
+                hash += hash64(record);
+            }
+            contentHash = hash;
+            contentHashVersion = version;
+        }
+        return contentHash;
+    }
+
+    private static long hash64(IniRecord record) {
+        long hash = hash64(0xcbf29ce484222325L, record.getKey());
+        for (String value : record.getValues()) {
+            // Separator prevents collisions of differently split values.
+            hash = (hash ^ 0xffff) * 0x100000001b3L;
+            hash = hash64(hash, value);
+        }
+        // Final mix spreads bits, as hashes of records are summed.
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long hash64(long hash, String string) {
+        for (int c = 0; c < string.length(); c++) {
+            hash = (hash ^ string.charAt(c)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns approximate retained heap size of the group in bytes: name, keys, values
+     * and maps overhead. Estimation is maintained on every change, so it's cheap to call.
+     */
+    public long estimateFootprint() {
+        return estimatedSize;
+    }
+
+    @NonNull
+    Object getLock() {
+        return lock;
+    }
+
+    void setListener(@Nullable MutationListener listener) {
+        this.listener = listener;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
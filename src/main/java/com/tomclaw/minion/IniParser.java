@@ -0,0 +1,339 @@
+package com.tomclaw.minion;
+
+import static com.tomclaw.minion.StreamHelper.safeClose;
+import static com.tomclaw.minion.StringHelper.endsWithChar;
+import static com.tomclaw.minion.StringHelper.splitByChar;
+import static com.tomclaw.minion.StringHelper.startsWithChar;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * INI format parser, that reports groups and records to the {@link Handler}.
+ * Structure of the lines is scanned on raw bytes for ASCII-compatible charsets,
+ * and only group names, keys and values are decoded.
+ * Sections, rejected by handler, are skipped without parsing their records.
+ */
+class IniParser {
+
+    static final char COMMENT_START_UNIX = '#';
+    static final char COMMENT_START_WINDOWS = ';';
+    static final String COMMENT_START_SLASH = "//";
+    static final String COMMENT_END_SLASH = " //";
+    static final String COMMENT_END_UNIX = " #";
+    static final String COMMENT_END_WINDOWS = " ;";
+    static final char GROUP_START = '[';
+    static final char GROUP_END = ']';
+    static final char KEY_VALUE_DIVIDER = '=';
+    static final char ARRAY_VALUE_DELIMITER = ',';
+
+    interface Handler {
+
+        /**
+         * @return true if records of the group should be parsed, false to skip the whole section.
+         */
+        boolean onGroup(@NonNull String name);
+
+        /**
+         * Receives raw value of the record, that may be split later with {@link #splitRaw}.
+         *
+         * @param array true if line has no key and whole line is array value.
+         */
+        void onRecord(@NonNull String key, @NonNull String rawValue, boolean array);
+
+    }
+
+    private IniParser() {
+    }
+
+    static void parse(@NonNull InputStream inputStream, @NonNull Charset charset,
+                      @NonNull Handler handler) throws IOException, UnsupportedFormatException {
+        parse(createSource(inputStream, charset), handler);
+    }
+
+    /**
+     * Parses characters directly, without encoding.
+     */
+    static void parse(@NonNull CharSequence chars, @NonNull Handler handler)
+            throws IOException, UnsupportedFormatException {
+        parse(new CharSequenceLineSource(chars, Minion.DEFAULT_CHARSET), handler);
+    }
+
+    private static void parse(LineSource source, Handler handler)
+            throws IOException, UnsupportedFormatException {
+        try {
+            boolean skip = false;
+            while (source.nextLine()) {
+                int start = trimStart(source, source.lineStart, source.lineEnd);
+                int end = trimEnd(source, start, source.lineEnd);
+                if (start == end || isComment(source, start, end)) {
+                    continue;
+                }
+
+                String name = parseGroupName(source, start, end);
+                if (name != null) {
+                    skip = !handler.onGroup(name);
+                    continue;
+                }
+                if (skip) {
+                    continue;
+                }
+
+                parseRecord(source, start, end, handler);
+            }
+        } finally {
+            safeClose(source);
+        }
+    }
+
+    /**
+     * Copies lines, that are not belong to the groups accepted by filter, as is.
+     * Lines preceding the first group are copied too.
+     */
+    static void copyRejected(@NonNull InputStream inputStream, @NonNull Charset charset,
+                             @NonNull GroupFilter filter, @NonNull OutputStream outputStream)
+            throws IOException {
+        LineSource source = createSource(inputStream, charset);
+        try {
+            boolean accepted = false;
+            while (source.nextLine()) {
+                int start = trimStart(source, source.lineStart, source.lineEnd);
+                int end = trimEnd(source, start, source.lineEnd);
+                if (start != end && !isComment(source, start, end)) {
+                    String name = parseGroupName(source, start, end);
+                    if (name != null) {
+                        accepted = filter.accept(name);
+                    }
+                }
+                if (!accepted) {
+                    source.copyLine(outputStream);
+                }
+            }
+        } finally {
+            safeClose(source);
+        }
+    }
+
+    private static LineSource createSource(InputStream inputStream, Charset charset) {
+        if (ByteLineSource.isSupported(charset)) {
+            return new ByteLineSource(inputStream, charset);
+        }
+        return new CharLineSource(inputStream, charset);
+    }
+
+    private static boolean isComment(LineSource source, int start, int end) {
+        int c = source.at(start);
+        return c == COMMENT_START_UNIX
+                || c == COMMENT_START_WINDOWS
+                || (c == '/' && end - start > 1 && source.at(start + 1) == '/');
+    }
+
+    @Nullable
+    private static String parseGroupName(LineSource source, int start, int end) {
+        if (source.at(start) != GROUP_START) {
+            return null;
+        }
+        int groupEnd = indexOf(source, GROUP_END, start, end);
+        if (groupEnd == -1) {
+            return null;
+        }
+        if (source.at(end - 1) == GROUP_END
+                || endsWithGroupEnd(source, start, indexOfSlashComment(source, start, end))
+                || endsWithGroupEnd(source, start, indexOf(source, COMMENT_START_WINDOWS, start, end))
+                || endsWithGroupEnd(source, start, indexOf(source, COMMENT_START_UNIX, start, end))) {
+            int nameStart = trimStart(source, start + 1, groupEnd);
+            int nameEnd = trimEnd(source, nameStart, groupEnd);
+            return source.decode(nameStart, nameEnd);
+        }
+        return null;
+    }
+
+    /**
+     * Checks, that range from start till comment, if there is any, ends with group end.
+     */
+    private static boolean endsWithGroupEnd(LineSource source, int start, int comment) {
+        if (comment == -1) {
+            return false;
+        }
+        int end = trimEnd(source, start, comment);
+        return end > start && source.at(end - 1) == GROUP_END;
+    }
+
+    private static void parseRecord(LineSource source, int start, int end, Handler handler)
+            throws UnsupportedFormatException {
+        int divider = indexOf(source, KEY_VALUE_DIVIDER, start, end);
+        if (divider != -1 && shouldTreatAsKeyValueGroup(source, start, trimEnd(source, start, divider))) {
+            if (divider == start) {
+                UnsupportedFormatException e = new UnsupportedFormatException(source.decode(start, end));
+                e.printStackTrace();
+                throw e;
+            }
+            String key = source.decode(start, trimEnd(source, start, divider));
+            String value = source.decode(divider + 1, end);
+            handler.onRecord(key, value, false);
+        } else if (indexOf(source, ARRAY_VALUE_DELIMITER, start, end) != -1) {
+            String line = source.decode(start, end);
+            handler.onRecord(line, line, true);
+        }
+    }
+
+    private static boolean shouldTreatAsKeyValueGroup(LineSource source, int start, int end) {
+        return indexOf(source, ARRAY_VALUE_DELIMITER, start, end) == -1
+                || (end > start && source.at(start) == '"' && source.at(end - 1) == '"');
+    }
+
+    private static int indexOf(LineSource source, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (source.at(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfSlashComment(LineSource source, int start, int end) {
+        for (int i = start; i < end - 1; i++) {
+            if (source.at(i) == '/' && source.at(i + 1) == '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimStart(LineSource source, int start, int end) {
+        while (start < end && source.at(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(LineSource source, int start, int end) {
+        while (end > start && source.at(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Splits raw value, reported to {@link Handler#onRecord}, into array.
+     */
+    @NonNull
+    static String[] splitRaw(@NonNull String rawValue, boolean array) {
+        return array ? splitArray(rawValue) : splitValue(rawValue);
+    }
+
+    /**
+     * Splits value of key-value record into array, merging items wrapped by double quote
+     * and stripping inline comment.
+     */
+    @NonNull
+    static String[] splitValue(@NonNull String value) {
+        List<String> arrayValue = splitByChar(value, ARRAY_VALUE_DELIMITER);
+        // merge value wrapped by double quote
+        StringBuilder builder = new StringBuilder();
+        boolean ended = false;
+        List<Integer> indexToRemove = new ArrayList<>();
+        for (int currentIndex = 0; currentIndex < arrayValue.size(); currentIndex++) {
+            String current = arrayValue.get(currentIndex);
+            int currentDoubleQuoteCount = charCountInString(current, '"');
+            if (currentDoubleQuoteCount == 1) {
+                if (builder.length() == 0) {
+                    // start
+                    builder.append(current);
+                    indexToRemove.add(currentIndex);
+                } else {
+                    if (current.trim().endsWith("\"")) {
+                        // end
+                        builder.append(",").append(current);
+                        indexToRemove.add(currentIndex);
+                        ended = true;
+                    }
+                }
+            } else if (currentDoubleQuoteCount == 0 && (builder.length() > 0)) {
+                // middle
+                builder.append(",").append(current);
+                indexToRemove.add(currentIndex);
+            }
+            if (ended) {
+                break;
+            }
+        }
+
+        if (ended) {
+            for (int i = indexToRemove.size() - 1; i >= 0; i--) {
+                int arrayIndex = indexToRemove.get(i);
+                arrayValue.remove(arrayIndex);
+                if (i == 0) {
+                    arrayValue.add(arrayIndex, builder.toString());
+                }
+            }
+        }
+
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < arrayValue.size(); i++) {
+            if (i == arrayValue.size() - 1) {
+                String last = arrayValue.get(i);
+                int index = indexOfComment(last);
+                if (index != -1) {
+                    values.add(last.substring(0, index).trim());
+                } else {
+                    values.add(last);
+                }
+            } else {
+                String current = arrayValue.get(i).trim();
+                String next = arrayValue.get(i + 1).trim();
+                if (startsWithChar(current, '"') && !startsWithChar(current, '"')
+                        && !startsWithChar(next, '"') && endsWithChar(next, '"')) {
+                    values.add((arrayValue.get(i) + "," + arrayValue.get(i + 1)));
+                    i++;
+                } else {
+                    values.add(current);
+                }
+            }
+        }
+        return values.toArray(new String[0]);
+    }
+
+    /**
+     * Splits line without key into array, stripping inline comment.
+     */
+    @NonNull
+    static String[] splitArray(@NonNull String line) {
+        List<String> arrayValue = splitByChar(line, ARRAY_VALUE_DELIMITER);
+        String last = arrayValue.get(arrayValue.size() - 1);
+        int cIndex = indexOfComment(last);
+        if (cIndex != -1) {
+            arrayValue.set(arrayValue.size() - 1, last.substring(0, cIndex).trim());
+        }
+        return arrayValue.toArray(new String[0]);
+    }
+
+    private static int charCountInString(String str, char c) {
+        int count = 0;
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int indexOfComment(String value) {
+        int index = value.indexOf(COMMENT_END_SLASH);
+        if (index == -1) {
+            index = value.indexOf(COMMENT_END_UNIX);
+        }
+        if (index == -1) {
+            index = value.indexOf(COMMENT_END_WINDOWS);
+        }
+        return index;
+    }
+
+}
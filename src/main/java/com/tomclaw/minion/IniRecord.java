@@ -1,6 +1,7 @@
 package com.tomclaw.minion;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.Arrays;
 
@@ -9,46 +10,397 @@ import java.util.Arrays;
  */
 public class IniRecord {
 
+    private static final String[] EMPTY = new String[]{};
+
+    /**
+     * Modes of {@link #resolveRaw(int)}.
+     */
+    private static final int SPLIT = 0;
+    private static final int PARSE_INTS = 1;
+    private static final int PARSE_LONGS = 2;
+
     @NonNull
     private final String key;
-    @NonNull
-    private String[] value;
+    /**
+     * Value, held on heap, or null if value is stored in arena or not split yet.
+     */
+    @Nullable
+    private volatile String[] value;
+    /**
+     * Value as it was read, split on first access. Guarded by the record lock.
+     */
+    @Nullable
+    private String rawValue;
+    private boolean rawArray;
+    /**
+     * Value, held as primitive array of numbers.
+     */
+    @Nullable
+    private volatile Object numbers;
+    /**
+     * Arena of the value, or null once value is moved on heap.
+     */
+    @Nullable
+    private ValueArena arena;
+    private int handle;
+    /**
+     * True while handle refers value in the arena.
+     */
+    private boolean stored;
+    private volatile long valueSize;
+    @Nullable
+    private volatile IniGroup group;
 
     protected IniRecord(@NonNull String key, @NonNull String... value) {
+        this(key, null, value);
+    }
+
+    IniRecord(@NonNull String key, @Nullable ValueArena arena, @NonNull String... value) {
         this.key = key.trim();
-        this.value = new String[]{};
+        this.arena = arena;
+        this.value = EMPTY;
         setValue(value);
     }
 
+    /**
+     * Creates record with value, that is split, quote-merged and stripped of inline comment
+     * only when it is requested for the first time.
+     */
+    IniRecord(@NonNull String key, @NonNull String rawValue, boolean array) {
+        this.key = key.trim();
+        this.arena = null;
+        // Raw value is read holding the lock, so it's published to readers with the lock
+        // even if record itself is published without synchronization.
+        synchronized (this) {
+            this.rawValue = rawValue;
+            this.rawArray = array;
+        }
+        this.valueSize = SizeEstimator.rawValueSize(rawValue);
+    }
+
     @NonNull
     public String getKey() {
         return key;
     }
 
+    /**
+     * Returns value items. Value, held as numbers, is formatted on every call,
+     * while {@link #getValue()} and {@link #hasValue()} read numbers directly.
+     */
     @NonNull
     public String[] getValues() {
+        String[] value = this.value;
+        if (value == null) {
+            Object numbers = this.numbers;
+            if (numbers != null) {
+                value = NumberArrays.format(numbers);
+            } else {
+                value = loadValue();
+                if (value == null) {
+                    value = (String[]) resolveRaw(SPLIT);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Reads value from the arena or returns value, that is already split. Arena is read
+     * holding the lock, so handle is never freed by concurrent change while it is decoded.
+     *
+     * @return value or null, if raw value is not split yet.
+     */
+    @Nullable
+    private synchronized String[] loadValue() {
+        String[] value = this.value;
+        if (value == null) {
+            if (numbers != null) {
+                // Raw value was just replaced with parsed numbers.
+                return NumberArrays.format(numbers);
+            }
+            if (arena != null) {
+                return arena.get(handle);
+            }
+        }
         return value;
     }
 
+    /**
+     * Splits or parses raw value. Raw value is replaced with the result,
+     * so estimated size is changed holding the lock of the group, like on any other change.
+     *
+     * @return split value, parsed numbers, or null if there is no raw value anymore
+     * or it is not a plain list of numbers.
+     */
+    @Nullable
+    private Object resolveRaw(int mode) {
+        if (!hasRawValue()) {
+            return mode == SPLIT ? loadValue() : null;
+        }
+        while (true) {
+            IniGroup group = this.group;
+            if (group == null) {
+                return resolveRawLocked(mode);
+            }
+            Object result;
+            synchronized (group.getLock()) {
+                if (this.group != group) {
+                    // Record was removed while waiting for the lock.
+                    continue;
+                }
+                long oldSize = valueSize;
+                result = resolveRawLocked(mode);
+                long delta = valueSize - oldSize;
+                if (delta != 0) {
+                    group.onSizeChanged(delta);
+                }
+            }
+            group.onLockReleased();
+            return result;
+        }
+    }
+
+    private synchronized boolean hasRawValue() {
+        return rawValue != null;
+    }
+
+    @Nullable
+    private synchronized Object resolveRawLocked(int mode) {
+        String rawValue = this.rawValue;
+        if (rawValue == null) {
+            // Raw value was resolved or replaced meanwhile.
+            return mode == SPLIT ? loadValue() : null;
+        }
+        if (mode == SPLIT) {
+            String[] value = IniParser.splitRaw(rawValue, rawArray);
+            trimValues(value);
+            this.rawValue = null;
+            this.value = value;
+            valueSize = SizeEstimator.valuesSize(value);
+            return value;
+        }
+        Object numbers;
+        int itemSize;
+        if (mode == PARSE_INTS) {
+            numbers = NumberArrays.parseInts(rawValue);
+            itemSize = 4;
+        } else {
+            numbers = NumberArrays.parseLongs(rawValue);
+            itemSize = 8;
+        }
+        // Numbers replace raw value, only if they are formatted back to the same value.
+        if (numbers != null && NumberArrays.isCanonical(rawValue)) {
+            this.numbers = numbers;
+            this.rawValue = null;
+            valueSize = SizeEstimator.numbersSize(NumberArrays.length(numbers), itemSize);
+        }
+        return numbers;
+    }
+
+    /**
+     * Returns value as array of integers. Raw value is parsed without splitting into strings.
+     * Returned array is a copy, so changing it doesn't change the record.
+     *
+     * @throws NumberFormatException if any item of the value is not an integer.
+     */
+    @NonNull
+    public int[] getIntArray() {
+        Object numbers = this.numbers;
+        if (numbers instanceof int[]) {
+            return ((int[]) numbers).clone();
+        }
+        int[] result = (int[]) resolveRaw(PARSE_INTS);
+        if (result != null) {
+            return result.clone();
+        }
+        return NumberArrays.parseInts(getValues());
+    }
+
+    /**
+     * Returns value as array of longs. Raw value is parsed without splitting into strings.
+     * Returned array is a copy, so changing it doesn't change the record.
+     *
+     * @throws NumberFormatException if any item of the value is not an integer.
+     */
+    @NonNull
+    public long[] getLongArray() {
+        Object numbers = this.numbers;
+        if (numbers instanceof long[]) {
+            return ((long[]) numbers).clone();
+        }
+        long[] result = (long[]) resolveRaw(PARSE_LONGS);
+        if (result != null) {
+            return result.clone();
+        }
+        return NumberArrays.parseLongs(getValues());
+    }
+
+    /**
+     * Returns value as array of doubles. Returned array is a copy,
+     * so changing it doesn't change the record.
+     *
+     * @throws NumberFormatException if any item of the value is not a number.
+     */
+    @NonNull
+    public double[] getDoubleArray() {
+        Object numbers = this.numbers;
+        if (numbers instanceof double[]) {
+            return ((double[]) numbers).clone();
+        }
+        synchronized (this) {
+            if (rawValue != null) {
+                // Doubles are not cached, as formatting may differ from the raw value.
+                double[] result = NumberArrays.parseDoubles(rawValue);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return NumberArrays.parseDoubles(getValues());
+    }
+
+    public void setIntArray(@NonNull int... value) {
+        setNumbers(value.clone(), SizeEstimator.numbersSize(value.length, 4));
+    }
+
+    public void setLongArray(@NonNull long... value) {
+        setNumbers(value.clone(), SizeEstimator.numbersSize(value.length, 8));
+    }
+
+    public void setDoubleArray(@NonNull double... value) {
+        setNumbers(value.clone(), SizeEstimator.numbersSize(value.length, 8));
+    }
+
+    private void setNumbers(Object numbers, long size) {
+        replace(null, numbers, size);
+    }
+
     @NonNull
     public String getValue() {
-        if (!hasValue()) {
+        String[] value = this.value;
+        if (value == null) {
+            Object numbers = this.numbers;
+            if (numbers != null) {
+                // Only the first number is formatted.
+                if (NumberArrays.length(numbers) == 0) {
+                    throw new IllegalStateException("IniRecord with key " + key + " has no value");
+                }
+                return NumberArrays.formatAt(numbers, 0);
+            }
+            value = getValues();
+        }
+        if (value.length == 0) {
             throw new IllegalStateException("IniRecord with key " + key + " has no value");
         }
         return value[0];
     }
 
     public void setValue(@NonNull String... value) {
-        this.value = value;
-        trimValues();
+        trimValues(value);
+        replace(value, null, 0);
+    }
+
+    /**
+     * Replaces value with strings or, if value is null, with numbers.
+     * Attached record is changed holding the lock of its group,
+     * so group receives changes in the same order as they are applied.
+     */
+    private void replace(@Nullable String[] value, @Nullable Object numbers, long numbersSize) {
+        while (true) {
+            IniGroup group = this.group;
+            if (group == null) {
+                swap(value, numbers, numbersSize);
+                return;
+            }
+            synchronized (group.getLock()) {
+                if (this.group != group) {
+                    // Record was removed while waiting for the lock.
+                    continue;
+                }
+                String[] oldValue = group.isOldValueRequired(this) ? getValues() : null;
+                long oldSize = valueSize;
+                swap(value, numbers, numbersSize);
+                group.onValueChanged(this, oldValue, valueSize - oldSize);
+            }
+            group.onLockReleased();
+            return;
+        }
+    }
+
+    private synchronized void swap(@Nullable String[] value, @Nullable Object numbers,
+                                   long numbersSize) {
+        rawValue = null;
+        int oldHandle = handle;
+        boolean oldStored = stored;
+        stored = false;
+        if (value == null) {
+            this.numbers = numbers;
+            this.value = null;
+            valueSize = numbersSize;
+        } else if (arena != null) {
+            handle = arena.put(value);
+            stored = true;
+            this.numbers = null;
+            this.value = null;
+            valueSize = 0;
+        } else {
+            this.value = value;
+            this.numbers = null;
+            valueSize = SizeEstimator.valuesSize(value);
+        }
+        if (oldStored && arena != null) {
+            arena.free(oldHandle);
+        }
+    }
+
+    /**
+     * Moves value from the arena on heap and frees its space in the arena,
+     * as record is removed from Minion, but still may be used.
+     */
+    synchronized void release() {
+        ValueArena arena = this.arena;
+        if (arena == null) {
+            return;
+        }
+        if (stored) {
+            String[] value = arena.get(handle);
+            arena.free(handle);
+            stored = false;
+            valueSize = SizeEstimator.valuesSize(value);
+            this.value = value;
+        }
+        this.arena = null;
     }
 
     @SuppressWarnings("WeakerAccess")
     public boolean hasValue() {
-        return value.length > 0;
+        if (value == null) {
+            Object numbers = this.numbers;
+            if (numbers != null) {
+                return NumberArrays.length(numbers) > 0;
+            }
+        }
+        return getValues().length > 0;
+    }
+
+    /**
+     * Returns estimated heap size of the value.
+     * Size is changed, when raw value is split or replaced with parsed numbers.
+     */
+    long getValueSize() {
+        return valueSize;
+    }
+
+    @Nullable
+    IniGroup getGroup() {
+        return group;
+    }
+
+    void setGroup(@Nullable IniGroup group) {
+        this.group = group;
     }
 
-    private void trimValues() {
+    private static void trimValues(String[] value) {
         for (int c = 0; c < value.length; c++) {
             value[c] = value[c].trim();
         }
@@ -59,14 +411,14 @@ public class IniRecord {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         IniRecord record = (IniRecord) o;
-        return key.equals(record.key) && Arrays.equals(value, record.value);
+        return key.equals(record.key) && Arrays.equals(getValues(), record.getValues());
 
     }
 
     @Override
     public int hashCode() {
         int result = key.hashCode();
-        result = 31 * result + Arrays.hashCode(value);
+        result = 31 * result + Arrays.hashCode(getValues());
         return result;
     }
 
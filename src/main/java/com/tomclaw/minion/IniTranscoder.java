@@ -0,0 +1,420 @@
+package com.tomclaw.minion;
+
+import static com.tomclaw.minion.IniParser.ARRAY_VALUE_DELIMITER;
+import static com.tomclaw.minion.StreamHelper.safeClose;
+import static com.tomclaw.minion.StringHelper.join;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming converters between INI and JSON or {@link java.util.Properties} formats.
+ * Records are transcoded one by one as they are parsed, without building groups in memory,
+ * so groups and keys are not merged: repeated groups and keys are written repeatedly.
+ * Records preceding the first group are skipped, as well as they are skipped on load.
+ * <p>
+ * JSON is an object of groups, every group is an object of records. Single value of the record
+ * is written as string, multiple values are written as array of strings.
+ * <p>
+ * Properties keys are group name and record key, joined by dot. Group name ends on the first dot,
+ * so group names with dots are not restored as is.
+ */
+@SuppressWarnings("WeakerAccess")
+public class IniTranscoder {
+
+    private static final Charset JSON_CHARSET = Charset.forName("UTF-8");
+    private static final Charset PROPERTIES_CHARSET = Charset.forName("ISO-8859-1");
+    private static final char PROPERTIES_KEY_SEPARATOR = '.';
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private IniTranscoder() {
+    }
+
+    public static void iniToJson(@NonNull InputStream inputStream, @NonNull OutputStream outputStream)
+            throws IOException, UnsupportedFormatException {
+        iniToJson(inputStream, Minion.DEFAULT_CHARSET, outputStream);
+    }
+
+    /**
+     * Writes INI data as UTF-8 JSON.
+     */
+    public static void iniToJson(@NonNull InputStream inputStream, @NonNull Charset charset,
+                                 @NonNull OutputStream outputStream)
+            throws IOException, UnsupportedFormatException {
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(outputStream, JSON_CHARSET));
+            JsonHandler handler = new JsonHandler(writer);
+            IniParser.parse(inputStream, charset, handler);
+            handler.finish();
+            writer.flush();
+        } catch (TranscodeException ex) {
+            throw ex.getCause();
+        } finally {
+            safeClose(writer);
+        }
+    }
+
+    public static void jsonToIni(@NonNull InputStream inputStream, @NonNull OutputStream outputStream)
+            throws IOException, UnsupportedFormatException {
+        jsonToIni(inputStream, outputStream, Minion.DEFAULT_CHARSET);
+    }
+
+    /**
+     * Writes UTF-8 JSON data as INI in the specified charset.
+     * Numbers and booleans are written as they are, nulls are written as empty values.
+     */
+    public static void jsonToIni(@NonNull InputStream inputStream, @NonNull OutputStream outputStream,
+                                 @NonNull Charset charset)
+            throws IOException, UnsupportedFormatException {
+        JsonTokenizer tokenizer = null;
+        IniWriter writer = null;
+        try {
+            tokenizer = new JsonTokenizer(new InputStreamReader(inputStream, JSON_CHARSET));
+            writer = new IniWriter(outputStream, charset);
+            List<String> values = new ArrayList<>();
+            tokenizer.expect('{');
+            if (!tokenizer.consume('}')) {
+                do {
+                    writer.writeGroup(checkLine(tokenizer.nextString()));
+                    tokenizer.expect(':');
+                    tokenizer.expect('{');
+                    if (tokenizer.consume('}')) {
+                        continue;
+                    }
+                    do {
+                        String key = checkLine(tokenizer.nextString());
+                        tokenizer.expect(':');
+                        if (tokenizer.consume('[')) {
+                            values.clear();
+                            if (!tokenizer.consume(']')) {
+                                do {
+                                    values.add(checkLine(nonNull(tokenizer.nextScalar())));
+                                } while (tokenizer.consume(','));
+                                tokenizer.expect(']');
+                            }
+                            writer.writeRecord(key, values.toArray(new String[0]));
+                        } else {
+                            writer.writeRecord(key, checkLine(nonNull(tokenizer.nextScalar())));
+                        }
+                    } while (tokenizer.consume(','));
+                    tokenizer.expect('}');
+                } while (tokenizer.consume(','));
+                tokenizer.expect('}');
+            }
+            tokenizer.expectEnd();
+            writer.flush();
+        } finally {
+            safeClose(tokenizer);
+            safeClose(writer);
+        }
+    }
+
+    public static void iniToProperties(@NonNull InputStream inputStream,
+                                       @NonNull OutputStream outputStream)
+            throws IOException, UnsupportedFormatException {
+        iniToProperties(inputStream, Minion.DEFAULT_CHARSET, outputStream);
+    }
+
+    /**
+     * Writes INI data in format of {@link java.util.Properties#store(OutputStream, String)}.
+     * Values of the record are joined by comma.
+     */
+    public static void iniToProperties(@NonNull InputStream inputStream, @NonNull Charset charset,
+                                       @NonNull OutputStream outputStream)
+            throws IOException, UnsupportedFormatException {
+        BufferedWriter writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(outputStream, PROPERTIES_CHARSET));
+            IniParser.parse(inputStream, charset, new PropertiesHandler(writer));
+            writer.flush();
+        } catch (TranscodeException ex) {
+            throw ex.getCause();
+        } finally {
+            safeClose(writer);
+        }
+    }
+
+    public static void propertiesToIni(@NonNull InputStream inputStream,
+                                       @NonNull OutputStream outputStream)
+            throws IOException, UnsupportedFormatException {
+        propertiesToIni(inputStream, outputStream, Minion.DEFAULT_CHARSET);
+    }
+
+    /**
+     * Writes data in format of {@link java.util.Properties#load(InputStream)} as INI.
+     * Keys without dot are written to the group with empty name.
+     * Subsequent keys of the same group are written to one section.
+     */
+    public static void propertiesToIni(@NonNull InputStream inputStream,
+                                       @NonNull OutputStream outputStream,
+                                       @NonNull Charset charset)
+            throws IOException, UnsupportedFormatException {
+        PropertiesReader reader = null;
+        IniWriter writer = null;
+        try {
+            reader = new PropertiesReader(new InputStreamReader(inputStream, PROPERTIES_CHARSET));
+            writer = new IniWriter(outputStream, charset);
+            String lastGroup = null;
+            while (reader.next()) {
+                String name = reader.getKey();
+                int separator = name.indexOf(PROPERTIES_KEY_SEPARATOR);
+                String group = separator == -1
+                        ? Minion.DEFAULT_GROUP_NAME : name.substring(0, separator);
+                String key = name.substring(separator + 1);
+                if (!group.equals(lastGroup)) {
+                    writer.writeGroup(checkLine(group));
+                    lastGroup = group;
+                }
+                writer.writeRecord(checkLine(key), checkLine(reader.getValue()));
+            }
+            writer.flush();
+        } finally {
+            safeClose(reader);
+            safeClose(writer);
+        }
+    }
+
+    /**
+     * Checks, that string may be written to INI line.
+     */
+    private static String checkLine(String string) throws UnsupportedFormatException {
+        if (string.indexOf('\n') != -1 || string.indexOf('\r') != -1) {
+            throw new UnsupportedFormatException("Line break is not supported: " + string);
+        }
+        return string;
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static void writeJsonString(Writer writer, String string) throws IOException {
+        writer.write('"');
+        int start = 0;
+        for (int index = 0; index < string.length(); index++) {
+            char c = string.charAt(index);
+            if (c != '"' && c != '\\' && c >= ' ') {
+                continue;
+            }
+            writer.write(string, start, index - start);
+            start = index + 1;
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    writeUnicodeEscape(writer, c);
+                    break;
+            }
+        }
+        writer.write(string, start, string.length() - start);
+        writer.write('"');
+    }
+
+    private static void appendPropertiesString(StringBuilder builder, String string,
+                                               boolean key) {
+        for (int index = 0; index < string.length(); index++) {
+            char c = string.charAt(index);
+            switch (c) {
+                case ' ':
+                    if (key || index == 0) {
+                        builder.append('\\');
+                    }
+                    builder.append(' ');
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\f':
+                    builder.append("\\f");
+                    break;
+                case '\\':
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    builder.append('\\');
+                    builder.append(c);
+                    break;
+                default:
+                    if (c < ' ' || c > '~') {
+                        appendUnicodeEscape(builder, c);
+                    } else {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static void writeUnicodeEscape(Writer writer, char c) throws IOException {
+        writer.write("\\u");
+        writer.write(HEX_DIGITS[(c >> 12) & 0xf]);
+        writer.write(HEX_DIGITS[(c >> 8) & 0xf]);
+        writer.write(HEX_DIGITS[(c >> 4) & 0xf]);
+        writer.write(HEX_DIGITS[c & 0xf]);
+    }
+
+    private static void appendUnicodeEscape(StringBuilder builder, char c) {
+        builder.append("\\u")
+                .append(HEX_DIGITS[(c >> 12) & 0xf])
+                .append(HEX_DIGITS[(c >> 8) & 0xf])
+                .append(HEX_DIGITS[(c >> 4) & 0xf])
+                .append(HEX_DIGITS[c & 0xf]);
+    }
+
+    /**
+     * Splits raw value into items, trimmed the same way as values of the loaded records.
+     */
+    private static String[] splitValues(String rawValue, boolean array) {
+        String[] values = IniParser.splitRaw(rawValue, array);
+        for (int c = 0; c < values.length; c++) {
+            values[c] = values[c].trim();
+        }
+        return values;
+    }
+
+    private static class JsonHandler implements IniParser.Handler {
+
+        private final Writer writer;
+        private boolean hasGroup;
+        private boolean hasRecord;
+
+        JsonHandler(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public boolean onGroup(@NonNull String name) {
+            try {
+                writer.write(hasGroup ? "},\n" : "{\n");
+                writeJsonString(writer, name);
+                writer.write(":{");
+            } catch (IOException ex) {
+                throw new TranscodeException(ex);
+            }
+            hasGroup = true;
+            hasRecord = false;
+            return true;
+        }
+
+        @Override
+        public void onRecord(@NonNull String key, @NonNull String rawValue, boolean array) {
+            if (!hasGroup) {
+                return;
+            }
+            String[] values = splitValues(rawValue, array);
+            try {
+                if (hasRecord) {
+                    writer.write(',');
+                }
+                writeJsonString(writer, key);
+                writer.write(':');
+                if (values.length == 1) {
+                    writeJsonString(writer, values[0]);
+                } else {
+                    writer.write('[');
+                    for (int c = 0; c < values.length; c++) {
+                        if (c > 0) {
+                            writer.write(',');
+                        }
+                        writeJsonString(writer, values[c]);
+                    }
+                    writer.write(']');
+                }
+            } catch (IOException ex) {
+                throw new TranscodeException(ex);
+            }
+            hasRecord = true;
+        }
+
+        void finish() throws IOException {
+            writer.write(hasGroup ? "}\n}" : "{}");
+        }
+
+    }
+
+    private static class PropertiesHandler implements IniParser.Handler {
+
+        private final BufferedWriter writer;
+        private final StringBuilder line = new StringBuilder();
+        private String prefix;
+
+        PropertiesHandler(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public boolean onGroup(@NonNull String name) {
+            prefix = name + PROPERTIES_KEY_SEPARATOR;
+            return true;
+        }
+
+        @Override
+        public void onRecord(@NonNull String key, @NonNull String rawValue, boolean array) {
+            if (prefix == null) {
+                return;
+            }
+            String[] values = splitValues(rawValue, array);
+            line.setLength(0);
+            appendPropertiesString(line, prefix + key, true);
+            line.append('=');
+            appendPropertiesString(line, join(ARRAY_VALUE_DELIMITER, values), false);
+            try {
+                writer.write(line.toString());
+                writer.newLine();
+            } catch (IOException ex) {
+                throw new TranscodeException(ex);
+            }
+        }
+
+    }
+
+    /**
+     * Carries write failure through parser handler.
+     */
+    private static class TranscodeException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        TranscodeException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+
+    }
+
+}
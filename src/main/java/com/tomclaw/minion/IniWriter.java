@@ -0,0 +1,56 @@
+package com.tomclaw.minion;
+
+import static com.tomclaw.minion.IniParser.ARRAY_VALUE_DELIMITER;
+import static com.tomclaw.minion.IniParser.GROUP_END;
+import static com.tomclaw.minion.IniParser.GROUP_START;
+import static com.tomclaw.minion.IniParser.KEY_VALUE_DIVIDER;
+import static com.tomclaw.minion.StringHelper.join;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Writes groups and records in INI format, one by one.
+ */
+class IniWriter implements Closeable {
+
+    private final BufferedWriter writer;
+    private boolean isEmpty = true;
+
+    IniWriter(@NonNull OutputStream outputStream, @NonNull Charset charset) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, charset));
+    }
+
+    void writeGroup(@NonNull String name) throws IOException {
+        if (!isEmpty) {
+            writer.newLine();
+        }
+        writer.write(GROUP_START + name + GROUP_END);
+        isEmpty = false;
+    }
+
+    void writeRecord(@NonNull String key, @NonNull String[] values) throws IOException {
+        writeRecord(key, join(ARRAY_VALUE_DELIMITER, values));
+    }
+
+    void writeRecord(@NonNull String key, @NonNull String value) throws IOException {
+        writer.newLine();
+        writer.write(key + KEY_VALUE_DIVIDER + value);
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+}
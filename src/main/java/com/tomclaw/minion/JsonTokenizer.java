@@ -0,0 +1,187 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull tokenizer of JSON text, that reads characters in chunks and keeps only current token.
+ */
+class JsonTokenizer implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder token = new StringBuilder();
+    private int position;
+    private int limit;
+
+    JsonTokenizer(@NonNull Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Consumes next significant character, if it is equal to the specified one.
+     */
+    boolean consume(char c) throws IOException {
+        if (peek() == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    void expect(char c) throws IOException, UnsupportedFormatException {
+        if (!consume(c)) {
+            throw unexpected("'" + c + "'");
+        }
+    }
+
+    /**
+     * Checks, that nothing but whitespace left in the input.
+     */
+    void expectEnd() throws IOException, UnsupportedFormatException {
+        if (peek() != -1) {
+            throw unexpected("end of input");
+        }
+    }
+
+    @NonNull
+    String nextString() throws IOException, UnsupportedFormatException {
+        expect('"');
+        token.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return token.toString();
+            } else if (c == '\\') {
+                token.append(readEscape());
+            } else if (c == -1 || c < ' ') {
+                throw unexpected("string character");
+            } else {
+                token.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Reads string, number or literal. Numbers and booleans are returned as they are written.
+     *
+     * @return scalar value or null for JSON null.
+     */
+    @Nullable
+    String nextScalar() throws IOException, UnsupportedFormatException {
+        int c = peek();
+        if (c == '"') {
+            return nextString();
+        }
+        token.setLength(0);
+        while (c != -1 && (c == '-' || c == '+' || c == '.'
+                || Character.isLetterOrDigit(c))) {
+            token.append((char) c);
+            position++;
+            c = position < limit ? buffer[position] : fill();
+        }
+        String literal = token.toString();
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (literal.equals("true") || literal.equals("false") || isNumber(literal)) {
+            return literal;
+        }
+        throw unexpected("value");
+    }
+
+    private static boolean isNumber(String literal) {
+        if (literal.isEmpty()) {
+            return false;
+        }
+        try {
+            Double.parseDouble(literal);
+            return literal.charAt(0) == '-' || Character.isDigit(literal.charAt(0));
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private char readEscape() throws IOException, UnsupportedFormatException {
+        int c = read();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit == -1) {
+                        throw unexpected("hex digit");
+                    }
+                    code = (code << 4) | digit;
+                }
+                return (char) code;
+            default:
+                throw unexpected("escape sequence");
+        }
+    }
+
+    /**
+     * Returns next character after whitespace without consuming it, or -1 at the end of input.
+     */
+    private int peek() throws IOException {
+        while (true) {
+            int c = position < limit ? buffer[position] : fill();
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                position++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        int c = position < limit ? buffer[position] : fill();
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    private int fill() throws IOException {
+        int read = reader.read(buffer);
+        if (read <= 0) {
+            position = limit = 0;
+            return -1;
+        }
+        position = 0;
+        limit = read;
+        return buffer[0];
+    }
+
+    private UnsupportedFormatException unexpected(String expected) throws IOException {
+        int c = position < limit ? buffer[position] : fill();
+        return new UnsupportedFormatException("Expected " + expected + ", but found "
+                + (c == -1 ? "end of input" : "'" + (char) c + "'"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
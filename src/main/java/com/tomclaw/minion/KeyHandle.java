@@ -0,0 +1,151 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Precompiled reference to the record with specified group name and key.
+ * Resolved group is cached until groups of the Minion are added or removed, and resolved record
+ * until records of its group are added or removed, so reads on the hot path go straight
+ * to the record without hashing or locking.
+ * Reads of the bounded Minion still look group up, as they update its access order.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class KeyHandle {
+
+    @NonNull
+    private final Minion minion;
+    @NonNull
+    private final String name;
+    @NonNull
+    private final String key;
+    @Nullable
+    private volatile Slot slot;
+
+    KeyHandle(@NonNull Minion minion, @NonNull String name, @NonNull String key) {
+        this.minion = minion;
+        this.name = name;
+        this.key = key;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    @NonNull
+    public String getKey() {
+        return key;
+    }
+
+    @Nullable
+    public IniRecord getRecord() {
+        Slot slot = this.slot;
+        // Generations must be read before lookup, so concurrent changes invalidate the slot.
+        int generation = minion.getGeneration();
+        IniGroup group;
+        if (slot != null && slot.generation == generation) {
+            group = slot.group;
+            if (group == null) {
+                return null;
+            }
+            if (slot.recordsGeneration == group.getRecordsGeneration()) {
+                if (slot.record != null) {
+                    minion.touchGroup(name);
+                }
+                return slot.record;
+            }
+            // Records of the group were changed, but group is still the same.
+            minion.touchGroup(name);
+        } else {
+            group = minion.getGroup(name);
+        }
+        int recordsGeneration = group != null ? group.getRecordsGeneration() : 0;
+        IniRecord record = group != null ? group.getRecord(key) : null;
+        this.slot = new Slot(generation, group, recordsGeneration, record);
+        return record;
+    }
+
+    @Nullable
+    public String getValue() {
+        return getValue(null);
+    }
+
+    @Nullable
+    public String getValue(@Nullable String defValue) {
+        IniRecord record = getRecord();
+        if (record != null) {
+            String[] value = record.getValues();
+            if (value.length > 0) {
+                return value[0];
+            }
+        }
+        return defValue;
+    }
+
+    @Nullable
+    public String[] getValues(@Nullable String[] defValue) {
+        IniRecord record = getRecord();
+        return record != null ? record.getValues() : defValue;
+    }
+
+    public int getInt(int defValue) {
+        String value = getValue();
+        if (value != null) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return defValue;
+    }
+
+    public long getLong(long defValue) {
+        String value = getValue();
+        if (value != null) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return defValue;
+    }
+
+    public boolean getBoolean(boolean defValue) {
+        String value = getValue();
+        return value != null ? Boolean.parseBoolean(value) : defValue;
+    }
+
+    /**
+     * Sets value of the record, creating group and record if needed.
+     */
+    @NonNull
+    public IniRecord setValue(@NonNull String... value) {
+        IniRecord record = getRecord();
+        if (record == null) {
+            record = minion.getOrCreateGroup(name).getOrCreateRecord(key);
+        }
+        record.setValue(value);
+        return record;
+    }
+
+    private static class Slot {
+
+        final int generation;
+        @Nullable
+        final IniGroup group;
+        final int recordsGeneration;
+        @Nullable
+        final IniRecord record;
+
+        Slot(int generation, @Nullable IniGroup group, int recordsGeneration,
+             @Nullable IniRecord record) {
+            this.generation = generation;
+            this.group = group;
+            this.recordsGeneration = recordsGeneration;
+            this.record = record;
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sorted index over group names and record keys.
+ * Lookups are logarithmic, results are live weakly consistent views, iterated lazily.
+ */
+class KeyIndex implements MutationListener {
+
+    private final ConcurrentSkipListMap<String, NavigableSet<String>> index =
+            new ConcurrentSkipListMap<>();
+
+    @NonNull
+    Set<String> groupsWithPrefix(@NonNull String prefix) {
+        return unmodifiable(subSet(index.navigableKeySet(), prefix));
+    }
+
+    @NonNull
+    Set<String> groupsInRange(@NonNull String from, @NonNull String to) {
+        return unmodifiable(index.navigableKeySet().subSet(from, true, to, false));
+    }
+
+    @NonNull
+    Set<String> findKeys(@NonNull String name, @NonNull String prefix) {
+        NavigableSet<String> keys = index.get(name);
+        if (keys == null) {
+            return Collections.emptySet();
+        }
+        return unmodifiable(subSet(keys, prefix));
+    }
+
+    @NonNull
+    Set<String> findKeys(@NonNull String name, @NonNull String from, @NonNull String to) {
+        NavigableSet<String> keys = index.get(name);
+        if (keys == null) {
+            return Collections.emptySet();
+        }
+        return unmodifiable(keys.subSet(from, true, to, false));
+    }
+
+    @Override
+    public void onGroupAdded(@NonNull IniGroup group) {
+        NavigableSet<String> keys = new ConcurrentSkipListSet<>();
+        for (IniRecord record : group.getRecords()) {
+            keys.add(record.getKey());
+        }
+        index.put(group.getName(), keys);
+    }
+
+    @Override
+    public void onGroupRemoved(@NonNull IniGroup group) {
+        index.remove(group.getName());
+    }
+
+    @Override
+    public void onRecordAdded(@NonNull IniGroup group, @NonNull IniRecord record) {
+        NavigableSet<String> keys = index.get(group.getName());
+        if (keys != null) {
+            keys.add(record.getKey());
+        }
+    }
+
+    @Override
+    public void onRecordRemoved(@NonNull IniGroup group, @NonNull IniRecord record) {
+        NavigableSet<String> keys = index.get(group.getName());
+        if (keys != null) {
+            keys.remove(record.getKey());
+        }
+    }
+
+    @Override
+    public void onValueChanged(@NonNull IniGroup group, @NonNull IniRecord record,
+                               @Nullable String[] oldValue) {
+    }
+
+    @Override
+    public boolean isOldValueRequired(@NonNull IniRecord record) {
+        return false;
+    }
+
+    @Override
+    public void onSizeChanged(@NonNull IniGroup group, long delta) {
+    }
+
+    @Override
+    public void onCleared() {
+        index.clear();
+    }
+
+    @Override
+    public void onLockReleased() {
+    }
+
+    private static NavigableSet<String> subSet(NavigableSet<String> set, String prefix) {
+        String upperBound = prefixUpperBound(prefix);
+        if (upperBound == null) {
+            return set.tailSet(prefix, true);
+        }
+        return set.subSet(prefix, true, upperBound, false);
+    }
+
+    /**
+     * Returns the smallest string, that is greater than every string starting with prefix,
+     * or null if there is no such string and the range is unbounded.
+     */
+    private static String prefixUpperBound(String prefix) {
+        for (int c = prefix.length() - 1; c >= 0; c--) {
+            char last = prefix.charAt(c);
+            if (last != Character.MAX_VALUE) {
+                return prefix.substring(0, c) + (char) (last + 1);
+            }
+        }
+        return null;
+    }
+
+    private static Set<String> unmodifiable(Set<String> set) {
+        return Collections.unmodifiableSet(set);
+    }
+
+}
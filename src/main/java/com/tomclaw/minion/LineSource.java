@@ -0,0 +1,43 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Line-by-line input of the parser. Current line is available as a range of indexes
+ * from {@link #lineStart} inclusive to {@link #lineEnd} exclusive, that are addressed
+ * with {@link #at(int)}. Line is never decoded entirely, only requested ranges are.
+ */
+abstract class LineSource implements Closeable {
+
+    int lineStart;
+    int lineEnd;
+
+    /**
+     * Moves to the next line.
+     *
+     * @return false if there is no more lines.
+     */
+    abstract boolean nextLine() throws IOException;
+
+    /**
+     * Returns code of the character or byte at specified index of the current line.
+     * Codes of structural ASCII characters are always equal to the characters themselves.
+     */
+    abstract int at(int index);
+
+    /**
+     * Decodes range of the current line into string.
+     */
+    @NonNull
+    abstract String decode(int from, int to);
+
+    /**
+     * Writes current line as is to the output, followed by line feed.
+     */
+    abstract void copyLine(@NonNull OutputStream outputStream) throws IOException;
+
+}
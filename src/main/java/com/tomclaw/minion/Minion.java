@@ -1,34 +1,47 @@
 package com.tomclaw.minion;
 
 import static com.tomclaw.minion.StreamHelper.safeClose;
-import static com.tomclaw.minion.StringHelper.containsChar;
-import static com.tomclaw.minion.StringHelper.endsWithChar;
-import static com.tomclaw.minion.StringHelper.join;
-import static com.tomclaw.minion.StringHelper.splitByChar;
-import static com.tomclaw.minion.StringHelper.startsWithChar;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.tomclaw.minion.storage.AsyncWritable;
+import com.tomclaw.minion.storage.CharSequenceReadable;
+import com.tomclaw.minion.storage.CompletionCallback;
+import com.tomclaw.minion.storage.Fingerprint;
+import com.tomclaw.minion.storage.Fingerprintable;
 import com.tomclaw.minion.storage.Readable;
 import com.tomclaw.minion.storage.Writable;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 /**
  * Created by solkin on 27.07.17.
@@ -37,30 +50,137 @@ import java.util.concurrent.Executors;
 public class Minion {
 
     public static final String DEFAULT_GROUP_NAME = "";
+    public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
 
-    private static final char COMMENT_START_UNIX = '#';
-    private static final char COMMENT_START_WINDOWS = ';';
-    private static final String COMMENT_START_SLASH = "//";
-    private static final String COMMENT_END_SLASH = " //";
-    private static final String COMMENT_END_UNIX = " #";
-    private static final String COMMENT_END_WINDOWS = " ;";
-    private static final char GROUP_START = '[';
-    private static final char GROUP_END = ']';
-    private static final char KEY_VALUE_DIVIDER = '=';
-    private static final char ARRAY_VALUE_DELIMITER = ',';
-
-    private static final Executor executor = Executors.newSingleThreadExecutor();
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
 
     private final Readable readable;
     private final Writable writable;
     private final boolean async;
+    @NonNull
+    private final MinionScheduler scheduler;
+    @NonNull
+    private final Charset charset;
+    @Nullable
+    private final KeyIndex keyIndex;
+    @Nullable
+    private final ValueIndex valueIndex;
+    @Nullable
+    private final GroupFilter groupFilter;
+
+    /**
+     * Arena of the current groups. Replaced on clear, so space of the cleared values is
+     * reclaimed with the old arena, once removed records are not used anymore.
+     */
+    @Nullable
+    private volatile ValueArena arena;
+    private final int valuesCacheSize;
+    @Nullable
+    private final GroupEvictor evictor;
+    @Nullable
+    private final EvictionListener evictionListener;
+    /**
+     * Groups, evicted holding the lock of the groups and not delivered to listener yet.
+     */
+    private final Queue<IniGroup> pendingEvictions = new ConcurrentLinkedQueue<>();
+
+    private final Map<String, IniGroup> groups;
+    private final MutationDispatcher dispatcher = new MutationDispatcher();
+    /**
+     * Incremented when groups are added or removed. Records of the group are tracked by the group.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+    /**
+     * Advanced by two on every mutation, and by one on start and finish of the atomic write,
+     * so it's odd while atomic write is in progress.
+     */
+    private final AtomicLong stamp = new AtomicLong(2);
+    /**
+     * Sum of the estimated sizes of attached groups.
+     */
+    private final AtomicLong groupsFootprint = new AtomicLong();
+    private final ReentrantReadWriteLock stampLock = new ReentrantReadWriteLock();
+    /**
+     * Guards state of the asynchronous writes.
+     */
+    private final Object writeLock = new Object();
+    private boolean writing;
+    /**
+     * Data to write after current asynchronous write, only the latest is kept.
+     */
+    @Nullable
+    private StoreData queuedStore;
+    private final List<ResultCallback> queuedCallbacks = new ArrayList<>();
+
+    @Nullable
+    private volatile Fingerprint loadedFingerprint;
+    @Nullable
+    private volatile Fingerprint storedFingerprint;
+    private volatile long storedHash;
 
-    private final Map<String, IniGroup> groups = new LinkedHashMap<>();
+    @NonNull
+    private final ReadPolicy readPolicy;
+    private final CountDownLatch loadLatch = new CountDownLatch(1);
+    /**
+     * Set when initial load is finished. Writes of the loading thread are visible
+     * to the threads, that read this flag, so reads need no locks after loading.
+     */
+    private volatile boolean loaded;
+    @Nullable
+    private volatile Exception loadFailure;
+    @Nullable
+    private volatile Thread loadingThread;
 
-    private Minion(Readable readable, Writable writable, boolean async) {
-        this.readable = readable;
-        this.writable = writable;
-        this.async = async;
+    /**
+     * Behaviour of reads, requested while initial asynchronous load is in progress.
+     * Mutations wait for load to finish with any policy.
+     */
+    public enum ReadPolicy {
+        /**
+         * Reads wait for load to finish.
+         */
+        BLOCK,
+        /**
+         * Reads return default values immediately.
+         */
+        RETURN_DEFAULTS
+    }
+
+    private Minion(Builder builder) {
+        this.readable = builder.readable;
+        this.writable = builder.writable;
+        this.async = builder.async;
+        this.scheduler = builder.scheduler;
+        this.charset = builder.charset;
+        this.groupFilter = builder.groupFilter;
+        this.valuesCacheSize = builder.valuesCacheSize;
+        this.arena = builder.offHeapValues ? new ValueArena(valuesCacheSize) : null;
+        if (builder.maxGroups > 0 || builder.maxSize > 0) {
+            // Least recently accessed groups are going first.
+            this.groups = new LinkedHashMap<>(16, 0.75f, true);
+            this.evictor = new GroupEvictor(this, builder.maxGroups, builder.maxSize);
+        } else {
+            this.groups = new CompactMap<>();
+            this.evictor = null;
+        }
+        dispatcher.addListener(new GenerationTracker());
+        dispatcher.addListener(new StampTracker());
+        // Footprint is tracked before evictor checks it.
+        dispatcher.addListener(new FootprintTracker());
+        this.keyIndex = builder.indexKeys ? new KeyIndex() : null;
+        this.valueIndex = builder.indexValues
+                ? new ValueIndex(builder.indexedValueKeys, groups) : null;
+        if (keyIndex != null) {
+            dispatcher.addListener(keyIndex);
+        }
+        if (valueIndex != null) {
+            dispatcher.addListener(valueIndex);
+        }
+        if (evictor != null) {
+            dispatcher.addListener(evictor);
+        }
+        this.evictionListener = builder.evictionListener;
+        this.readPolicy = builder.readPolicy;
     }
 
     @Nullable
@@ -87,9 +207,11 @@ public class Minion {
             @NonNull String key,
             @Nullable String defValue
     ) {
+        if (!awaitReadable()) {
+            return defValue;
+        }
         String value = defValue;
-        IniGroup group = getOrCreateGroup(name);
-        IniRecord record = group.getRecord(key);
+        IniRecord record = findRecord(name, key);
         if (record != null && record.hasValue()) {
             value = record.getValue();
         }
@@ -110,113 +232,807 @@ public class Minion {
             @NonNull String key,
             @Nullable String[] defValue
     ) {
+        if (!awaitReadable()) {
+            return defValue;
+        }
         String[] value = defValue;
-        IniGroup group = getOrCreateGroup(name);
-        IniRecord record = group.getRecord(key);
+        IniRecord record = findRecord(name, key);
         if (record != null) {
             value = record.getValues();
         }
         return value;
     }
 
+    @Nullable
+    public int[] getIntArray(
+            @NonNull String name,
+            @NonNull String key,
+            @Nullable int[] defValue
+    ) {
+        if (!awaitReadable()) {
+            return defValue;
+        }
+        IniRecord record = findRecord(name, key);
+        return record != null ? record.getIntArray() : defValue;
+    }
+
+    @Nullable
+    public long[] getLongArray(
+            @NonNull String name,
+            @NonNull String key,
+            @Nullable long[] defValue
+    ) {
+        if (!awaitReadable()) {
+            return defValue;
+        }
+        IniRecord record = findRecord(name, key);
+        return record != null ? record.getLongArray() : defValue;
+    }
+
+    @Nullable
+    public double[] getDoubleArray(
+            @NonNull String name,
+            @NonNull String key,
+            @Nullable double[] defValue
+    ) {
+        if (!awaitReadable()) {
+            return defValue;
+        }
+        IniRecord record = findRecord(name, key);
+        return record != null ? record.getDoubleArray() : defValue;
+    }
+
+    @NonNull
+    public IniRecord setIntArray(
+            @NonNull String name,
+            @NonNull String key,
+            @NonNull int... value
+    ) {
+        IniRecord record = getOrCreateGroup(name).getOrCreateRecord(key);
+        record.setIntArray(value);
+        return record;
+    }
+
+    @NonNull
+    public IniRecord setLongArray(
+            @NonNull String name,
+            @NonNull String key,
+            @NonNull long... value
+    ) {
+        IniRecord record = getOrCreateGroup(name).getOrCreateRecord(key);
+        record.setLongArray(value);
+        return record;
+    }
+
+    @NonNull
+    public IniRecord setDoubleArray(
+            @NonNull String name,
+            @NonNull String key,
+            @NonNull double... value
+    ) {
+        IniRecord record = getOrCreateGroup(name).getOrCreateRecord(key);
+        record.setDoubleArray(value);
+        return record;
+    }
+
+    /**
+     * Resolves group name and record key into handle, that reads and writes record value
+     * without lookups, while groups and records are not added or removed.
+     * Handle stays valid across reloads and removals, re-resolving the record when needed.
+     */
+    @NonNull
+    public KeyHandle handle(@NonNull String name, @NonNull String key) {
+        return new KeyHandle(this, name, key);
+    }
+
+    /**
+     * Reads several values consistently. Reader may be called more than once,
+     * so it must have no side effects.
+     */
+    public interface Reader<T> {
+
+        T read(@NonNull Minion minion);
+
+    }
+
+    /**
+     * Returns stamp of the current data, that may be checked later with {@link #validate(long)},
+     * or zero if atomic write is in progress.
+     */
+    public long tryOptimisticRead() {
+        long stamp = this.stamp.get();
+        return (stamp & 1) == 0 ? stamp : 0;
+    }
+
+    /**
+     * Checks, that data was not changed since stamp was obtained.
+     */
+    public boolean validate(long stamp) {
+        // Compare-and-set is a full fence, unlike plain volatile read, so loads of the reader
+        // are not reordered past validation. Fences of VarHandle are not available on Android.
+        return stamp != 0 && this.stamp.compareAndSet(stamp, stamp);
+    }
+
+    /**
+     * Executes reader without locking and validates, that data was not changed meanwhile.
+     * If data is changed concurrently several times in a row, reader is executed once
+     * under read lock, that excludes atomic writes, and lock of the groups,
+     * that excludes all other mutations.
+     */
+    public <T> T read(@NonNull Reader<T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            long stamp = tryOptimisticRead();
+            if (stamp == 0) {
+                continue;
+            }
+            T result;
+            try {
+                result = reader.read(this);
+            } catch (RuntimeException ex) {
+                // Inconsistent data may break reader, that is only an error if data is stable.
+                if (validate(stamp)) {
+                    throw ex;
+                }
+                continue;
+            }
+            if (validate(stamp)) {
+                return result;
+            }
+        }
+        // Initial load needs lock of the groups, so it must not be awaited holding it.
+        awaitReadable();
+        stampLock.readLock().lock();
+        try {
+            synchronized (groups) {
+                return reader.read(this);
+            }
+        } finally {
+            stampLock.readLock().unlock();
+            // Values, split by reader, may exceed the size limit.
+            deliverEvictions();
+        }
+    }
+
+    /**
+     * Executes mutation exclusively, so it's observed by {@link #read(Reader)} entirely or not at all.
+     */
+    public void write(@NonNull Runnable mutation) {
+        // Initial load must not be awaited holding the write lock.
+        awaitWritable();
+        beginWrite();
+        try {
+            mutation.run();
+        } finally {
+            endWrite();
+        }
+    }
+
+    private void beginWrite() {
+        stampLock.writeLock().lock();
+        if (stampLock.getWriteHoldCount() == 1) {
+            stamp.incrementAndGet();
+        }
+    }
+
+    private void endWrite() {
+        if (stampLock.getWriteHoldCount() == 1) {
+            stamp.incrementAndGet();
+        }
+        stampLock.writeLock().unlock();
+    }
+
+    int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns group with specified name, creating it if there is no such group yet.
+     *
+     * @throws IllegalStateException if Minion {@link #isPartial() is partial}
+     *                               and group is not accepted by the filter.
+     */
     @NonNull
     public IniGroup getOrCreateGroup(@NonNull String name) {
+        if (groupFilter != null && !groupFilter.accept(name)) {
+            throw new IllegalStateException("Group " + name + " is not loaded");
+        }
+        awaitWritable();
+        IniGroup group;
         synchronized (groups) {
-            IniGroup group = getGroup(name);
+            group = findGroup(name);
             if (group == null) {
                 group = addGroup(name);
             }
-            return group;
         }
+        deliverEvictions();
+        return group;
     }
 
     @Nullable
     public IniGroup getGroup(@NonNull String name) {
+        if (!awaitReadable()) {
+            return null;
+        }
+        return findGroup(name);
+    }
+
+    /**
+     * Looks up the record without creating its group, so reads never add groups
+     * and never cause eviction in bounded mode.
+     */
+    @Nullable
+    private IniRecord findRecord(@NonNull String name, @NonNull String key) {
+        IniGroup group = findGroup(name);
+        return group != null ? group.getRecord(key) : null;
+    }
+
+    @Nullable
+    private IniGroup findGroup(@NonNull String name) {
+        if (evictor != null) {
+            // Access order is updated on every read.
+            synchronized (groups) {
+                return groups.get(name);
+            }
+        }
         return groups.get(name);
     }
 
+    /**
+     * Marks group as recently accessed in bounded Minion, so reads of the records,
+     * resolved earlier without lookup, keep their group from eviction.
+     */
+    void touchGroup(@NonNull String name) {
+        if (evictor != null) {
+            findGroup(name);
+        }
+    }
+
     @NonNull
     public Set<String> getGroupNames() {
-        return Collections.unmodifiableSet(groups.keySet());
+        if (!awaitReadable()) {
+            return Collections.emptySet();
+        }
+        synchronized (groups) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(groups.keySet()));
+        }
     }
 
     @NonNull
     public Collection<IniGroup> getGroups() {
-        return Collections.unmodifiableCollection(groups.values());
+        if (!awaitReadable()) {
+            return Collections.emptyList();
+        }
+        return snapshotGroups();
+    }
+
+    /**
+     * Returns snapshot of the groups, that is safe to iterate while groups are changed.
+     */
+    @NonNull
+    private Collection<IniGroup> snapshotGroups() {
+        synchronized (groups) {
+            return Collections.unmodifiableList(
+                    Arrays.asList(groups.values().toArray(new IniGroup[0])));
+        }
     }
 
     public int getGroupsCount() {
+        if (!awaitReadable()) {
+            return 0;
+        }
         return groups.size();
     }
 
+    /**
+     * Returns approximate retained heap size of the groups and records in bytes:
+     * names, keys, values and maps overhead. Indexes are not included.
+     * Estimation is maintained on every change, so it's cheap to call.
+     */
+    public long estimateFootprint() {
+        return SizeEstimator.minionSize() + groupsFootprint.get();
+    }
+
+    long getGroupsFootprint() {
+        return groupsFootprint.get();
+    }
+
+    /**
+     * Returns true if groups count or size is limited and
+     * least recently accessed groups are evicted on exceeding the limit.
+     */
+    public boolean isBounded() {
+        return evictor != null;
+    }
+
+    /**
+     * Evicts least recently accessed groups until capacity is not exceeded.
+     * Evicted groups are delivered to listener, once lock of the groups is released.
+     *
+     * @param retained group, that must not be evicted.
+     */
+    void trimGroups(@NonNull IniGroup retained) {
+        GroupEvictor evictor = this.evictor;
+        if (evictor == null) {
+            return;
+        }
+        synchronized (groups) {
+            Iterator<IniGroup> iterator = groups.values().iterator();
+            while (evictor.isOverCapacity(groups.size()) && iterator.hasNext()) {
+                IniGroup group = iterator.next();
+                if (group == retained) {
+                    continue;
+                }
+                iterator.remove();
+                detachGroup(group);
+                if (evictionListener != null) {
+                    pendingEvictions.add(group);
+                }
+            }
+        }
+        deliverEvictions();
+    }
+
+    /**
+     * Delivers evicted groups to listener, unless current thread holds lock of the groups.
+     * Listener may block or access this Minion, as change of the other threads is not held by it.
+     */
+    void deliverEvictions() {
+        EvictionListener listener = this.evictionListener;
+        if (listener == null || Thread.holdsLock(groups)) {
+            return;
+        }
+        IniGroup group;
+        while ((group = pendingEvictions.poll()) != null) {
+            listener.onGroupEvicted(this, group);
+        }
+    }
+
+    /**
+     * Returns true if only groups accepted by filter were loaded.
+     * Such groups only may be created, and other groups are preserved as is on store.
+     */
+    public boolean isPartial() {
+        return groupFilter != null;
+    }
+
+    /**
+     * Returns names of the groups, starting with specified prefix, in natural order.
+     * Requires key index to be enabled with {@link Builder#indexKeys()}.
+     */
+    @NonNull
+    public Set<String> groupsWithPrefix(@NonNull String prefix) {
+        if (!awaitReadable()) {
+            return Collections.emptySet();
+        }
+        return requireKeyIndex().groupsWithPrefix(prefix);
+    }
+
+    /**
+     * Returns names of the groups in range from inclusive to exclusive, in natural order.
+     * Requires key index to be enabled with {@link Builder#indexKeys()}.
+     */
+    @NonNull
+    public Set<String> groupsInRange(@NonNull String from, @NonNull String to) {
+        if (!awaitReadable()) {
+            return Collections.emptySet();
+        }
+        return requireKeyIndex().groupsInRange(from, to);
+    }
+
+    /**
+     * Returns keys of the group records, starting with specified prefix, in natural order.
+     * Requires key index to be enabled with {@link Builder#indexKeys()}.
+     */
+    @NonNull
+    public Set<String> findKeys(@NonNull String name, @NonNull String prefix) {
+        if (!awaitReadable()) {
+            return Collections.emptySet();
+        }
+        return requireKeyIndex().findKeys(name, prefix);
+    }
+
+    /**
+     * Returns keys of the group records in range from inclusive to exclusive, in natural order.
+     * Requires key index to be enabled with {@link Builder#indexKeys()}.
+     */
+    @NonNull
+    public Set<String> findKeys(@NonNull String name, @NonNull String from, @NonNull String to) {
+        if (!awaitReadable()) {
+            return Collections.emptySet();
+        }
+        return requireKeyIndex().findKeys(name, from, to);
+    }
+
+    /**
+     * Returns names of the groups, having record with specified key, holding specified value.
+     * Requires value index to be enabled with {@link Builder#indexValues(String...)}.
+     */
+    @NonNull
+    public Set<String> findGroups(@NonNull String key, @NonNull String value) {
+        if (!awaitReadable()) {
+            return Collections.emptySet();
+        }
+        return requireValueIndex().findGroups(snapshotGroups(), key, value);
+    }
+
+    /**
+     * Returns records with specified key, holding specified value.
+     * Requires value index to be enabled with {@link Builder#indexValues(String...)}.
+     */
+    @NonNull
+    public Collection<IniRecord> findRecords(@NonNull String key, @NonNull String value) {
+        if (!awaitReadable()) {
+            return Collections.emptyList();
+        }
+        return requireValueIndex().findRecords(snapshotGroups(), key, value);
+    }
+
+    @NonNull
+    private ValueIndex requireValueIndex() {
+        if (valueIndex == null) {
+            throw new IllegalStateException("Value index is not enabled");
+        }
+        return valueIndex;
+    }
+
+    @NonNull
+    private KeyIndex requireKeyIndex() {
+        if (keyIndex == null) {
+            throw new IllegalStateException("Key index is not enabled");
+        }
+        return keyIndex;
+    }
+
     @NonNull
     private IniGroup addGroup(String name) {
-        IniGroup group = new IniGroup(name);
-        groups.put(group.getName(), group);
+        IniGroup group = new IniGroup(name, arena, groups);
+        IniGroup previous = groups.put(group.getName(), group);
+        if (previous != null) {
+            detachGroup(previous);
+        }
+        attachGroup(group);
         return group;
     }
 
+    private void attachGroup(IniGroup group) {
+        group.setListener(dispatcher);
+        dispatcher.onGroupAdded(group);
+    }
+
+    private void detachGroup(IniGroup group) {
+        group.setListener(null);
+        dispatcher.onGroupRemoved(group);
+        group.releaseValues();
+    }
+
     @Nullable
     public IniGroup removeGroup(String name) {
-        return groups.remove(name);
+        awaitWritable();
+        synchronized (groups) {
+            IniGroup group = groups.remove(name);
+            if (group != null) {
+                detachGroup(group);
+            }
+            return group;
+        }
     }
 
     @Nullable
     public IniRecord removeRecord(String name, String key) {
-        IniGroup group = getGroup(name);
+        awaitWritable();
+        IniGroup group = findGroup(name);
         if (group != null) {
             return group.removeRecord(key);
         }
         return null;
     }
 
+    /**
+     * Creates patch, that transforms this Minion into target.
+     * Groups with equal content hashes are skipped without comparing their records.
+     */
+    @NonNull
+    public MinionPatch diff(@NonNull Minion target) {
+        List<MinionPatch.Change> changes = new ArrayList<>();
+        for (IniGroup group : getGroups()) {
+            IniGroup targetGroup = target.getGroup(group.getName());
+            if (targetGroup == null) {
+                changes.add(new MinionPatch.Change(
+                        MinionPatch.Type.REMOVE_GROUP, group.getName(), null, null));
+            } else if (group.getRecordsCount() != targetGroup.getRecordsCount()
+                    || group.getContentHash() != targetGroup.getContentHash()) {
+                diffRecords(group, targetGroup, changes);
+            }
+        }
+        for (IniGroup targetGroup : target.getGroups()) {
+            if (getGroup(targetGroup.getName()) == null) {
+                changes.add(new MinionPatch.Change(
+                        MinionPatch.Type.ADD_GROUP, targetGroup.getName(), null, null));
+                for (IniRecord record : targetGroup.getRecords()) {
+                    changes.add(new MinionPatch.Change(MinionPatch.Type.SET_RECORD,
+                            targetGroup.getName(), record.getKey(), record.getValues()));
+                }
+            }
+        }
+        return new MinionPatch(changes);
+    }
+
+    private static void diffRecords(IniGroup group, IniGroup targetGroup,
+                                    List<MinionPatch.Change> changes) {
+        String name = group.getName();
+        for (IniRecord record : group.getRecords()) {
+            if (targetGroup.getRecord(record.getKey()) == null) {
+                changes.add(new MinionPatch.Change(
+                        MinionPatch.Type.REMOVE_RECORD, name, record.getKey(), null));
+            }
+        }
+        for (IniRecord targetRecord : targetGroup.getRecords()) {
+            IniRecord record = group.getRecord(targetRecord.getKey());
+            if (record == null || !Arrays.equals(record.getValues(), targetRecord.getValues())) {
+                changes.add(new MinionPatch.Change(MinionPatch.Type.SET_RECORD,
+                        name, targetRecord.getKey(), targetRecord.getValues()));
+            }
+        }
+    }
+
+    /**
+     * Applies changes of the patch to this Minion.
+     */
+    public void apply(@NonNull MinionPatch patch) {
+        for (MinionPatch.Change change : patch.getChanges()) {
+            switch (change.getType()) {
+                case ADD_GROUP:
+                    getOrCreateGroup(change.getName());
+                    break;
+                case REMOVE_GROUP:
+                    removeGroup(change.getName());
+                    break;
+                case SET_RECORD:
+                    String[] value = change.getValue();
+                    getOrCreateGroup(change.getName())
+                            .getOrCreateRecord(change.getKey())
+                            .setValue(value != null ? value.clone() : new String[0]);
+                    break;
+                case REMOVE_RECORD:
+                    removeRecord(change.getName(), change.getKey());
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns immutable snapshot of current groups and records,
+     * optimized for lookups and memory footprint.
+     * Later changes of this Minion are not reflected in the snapshot.
+     */
+    @NonNull
+    public FrozenMinion freeze() {
+        synchronized (groups) {
+            return FrozenMinion.freeze(groups.values());
+        }
+    }
+
     public void clear() {
-        groups.clear();
+        awaitWritable();
+        synchronized (groups) {
+            for (IniGroup group : groups.values()) {
+                group.setListener(null);
+            }
+            groups.clear();
+            if (arena != null) {
+                arena = new ValueArena(valuesCacheSize);
+            }
+            dispatcher.onCleared();
+        }
     }
 
     public void store() {
         store(new EmptyResultCallback());
     }
 
+    /**
+     * Stores data. Asynchronous Minion with {@link AsyncWritable} storage doesn't block
+     * scheduler thread while data is written, and callback is invoked on the I/O thread.
+     */
     public void store(@NonNull final ResultCallback callback) {
-        Runnable runnable = new Runnable() {
-            @Override
-            public void run() {
-                storeSync(callback);
-            }
-        };
         if (async) {
-            executor.execute(runnable);
+            scheduler.store(this, callback);
         } else {
-            runnable.run();
+            storeSync(callback);
         }
     }
 
-    private void storeSync(@NonNull final ResultCallback callback) {
+    void storeSync(@NonNull final ResultCallback callback) {
         try {
-            final OutputStream outputStream = writable.write();
-            compile(outputStream);
+            StoreData storeData = prepareStore();
+            if (storeData != null && async && writable instanceof AsyncWritable) {
+                writeAsync(storeData, callback);
+                return;
+            }
+            if (storeData != null) {
+                final OutputStream outputStream = writable.write();
+                try {
+                    outputStream.write(storeData.data);
+                    outputStream.close();
+                } finally {
+                    safeClose(outputStream);
+                }
+                completeStore(storeData);
+            }
             callback.onReady(this);
         } catch (Exception ex) {
             callback.onFailure(ex);
         }
     }
 
+    /**
+     * Writes data without blocking the thread. Writes of this Minion never overlap,
+     * data of the stores, requested meanwhile, is merged into one write.
+     */
+    private void writeAsync(@NonNull StoreData storeData, @NonNull ResultCallback callback) {
+        synchronized (writeLock) {
+            if (writing) {
+                queuedStore = storeData;
+                queuedCallbacks.add(callback);
+                return;
+            }
+            writing = true;
+        }
+        startWrite(storeData, Collections.singletonList(callback));
+    }
+
+    private void startWrite(@NonNull final StoreData storeData,
+                            @NonNull final List<ResultCallback> callbacks) {
+        // Write is finished once, even if storage both reports failure and throws.
+        final AtomicBoolean finished = new AtomicBoolean();
+        CompletionCallback<Void> completion = new CompletionCallback<Void>() {
+            @Override
+            public void onComplete(Void result) {
+                if (!finished.compareAndSet(false, true)) {
+                    return;
+                }
+                Exception failure = null;
+                try {
+                    completeStore(storeData);
+                } catch (IOException ex) {
+                    failure = ex;
+                }
+                writeNext();
+                for (ResultCallback callback : callbacks) {
+                    if (failure == null) {
+                        callback.onReady(Minion.this);
+                    } else {
+                        callback.onFailure(failure);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Exception ex) {
+                if (!finished.compareAndSet(false, true)) {
+                    return;
+                }
+                writeNext();
+                for (ResultCallback callback : callbacks) {
+                    callback.onFailure(ex);
+                }
+            }
+        };
+        try {
+            ((AsyncWritable) writable).writeAsync(ByteBuffer.wrap(storeData.data), completion);
+        } catch (RuntimeException ex) {
+            // Otherwise write is never finished, and queued stores and refresh wait forever.
+            completion.onFailure(ex);
+        }
+    }
+
+    private void writeNext() {
+        StoreData storeData;
+        List<ResultCallback> callbacks;
+        synchronized (writeLock) {
+            storeData = queuedStore;
+            if (storeData == null) {
+                writing = false;
+                writeLock.notifyAll();
+                return;
+            }
+            callbacks = new ArrayList<>(queuedCallbacks);
+            queuedStore = null;
+            queuedCallbacks.clear();
+        }
+        startWrite(storeData, callbacks);
+    }
+
+    /**
+     * Takes write slot of this Minion, waiting for asynchronous writes to finish,
+     * so data, written by batch, is not overwritten by concurrent write.
+     * Stores, requested meanwhile, are queued until slot is released.
+     */
+    void acquireWrite() throws InterruptedException {
+        synchronized (writeLock) {
+            while (writing) {
+                writeLock.wait();
+            }
+            writing = true;
+        }
+    }
+
+    void releaseWrite() {
+        writeNext();
+    }
+
+    /**
+     * Waits for asynchronous writes to finish, so data is not read while it is written.
+     */
+    private void awaitWrites() throws InterruptedException {
+        synchronized (writeLock) {
+            while (writing) {
+                writeLock.wait();
+            }
+        }
+    }
+
+    /**
+     * Serializes data for store.
+     *
+     * @return serialized data or null, if it is already stored.
+     */
+    @Nullable
+    StoreData prepareStore() throws IOException {
+        byte[] data = serialize();
+        long hash = checksum(data);
+        if (!isStoreRequired(hash)) {
+            return null;
+        }
+        return new StoreData(data, hash);
+    }
+
+    /**
+     * Remembers data, written to the storage, to skip stores of the same data.
+     */
+    void completeStore(@NonNull StoreData storeData) throws IOException {
+        storedHash = storeData.hash;
+        storedFingerprint = fingerprintOf(writable);
+        if (readable == writable) {
+            loadedFingerprint = storedFingerprint;
+        }
+    }
+
+    @Nullable
+    Writable getWritable() {
+        return writable;
+    }
+
+    /**
+     * Checks, whether serialized data differs from the data, stored earlier,
+     * or stored data was changed since then.
+     */
+    private boolean isStoreRequired(long hash) throws IOException {
+        if (storedFingerprint == null || storedHash != hash) {
+            return true;
+        }
+        return !storedFingerprint.equals(fingerprintOf(writable));
+    }
+
+    @NonNull
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        if (groupFilter != null && readable != null) {
+            // Unloaded groups are copied from source as is.
+            IniParser.copyRejected(readable.read(), charset, groupFilter, stream);
+        }
+        compile(stream);
+        return stream.toByteArray();
+    }
+
     private void compile(OutputStream outputStream) throws IOException {
-        BufferedWriter writer = null;
+        IniWriter writer = null;
         try {
-            writer = new BufferedWriter(new OutputStreamWriter(outputStream));
-            boolean isEmpty = true;
-            for (IniGroup group : groups.values()) {
-                if (!isEmpty) {
-                    writer.newLine();
-                }
-                writer.write(GROUP_START + group.getName() + GROUP_END);
-                isEmpty = false;
+            writer = new IniWriter(outputStream, charset);
+            for (IniGroup group : snapshotGroups()) {
+                writer.writeGroup(group.getName());
                 for (IniRecord record : group.getRecords()) {
-                    String value = join(ARRAY_VALUE_DELIMITER, record.getValues());
-                    writer.newLine();
-                    writer.write(record.getKey() + KEY_VALUE_DIVIDER + value);
+                    writer.writeRecord(record.getKey(), record.getValues());
                 }
             }
             writer.flush();
@@ -226,24 +1042,136 @@ public class Minion {
     }
 
     private void load(@NonNull final ResultCallback callback) {
+        // Readiness is published before the callback is notified.
+        final ResultCallback readiness = new ResultCallback() {
+            @Override
+            public void onReady(Minion minion) {
+                publishLoaded(null);
+                callback.onReady(minion);
+            }
+
+            @Override
+            public void onFailure(Exception ex) {
+                publishLoaded(ex);
+                callback.onFailure(ex);
+            }
+        };
         Runnable runnable = new Runnable() {
             @Override
             public void run() {
-                loadSync(callback);
+                loadingThread = Thread.currentThread();
+                loadSync(readiness);
             }
         };
         if (async) {
-            executor.execute(runnable);
+            scheduler.load(this, runnable, readiness);
         } else {
             runnable.run();
         }
     }
 
+    private void publishLoaded(@Nullable Exception failure) {
+        loadFailure = failure;
+        loaded = true;
+        loadingThread = null;
+        loadLatch.countDown();
+    }
+
+    /**
+     * Checks, whether data may be read, waiting for initial load, if required by read policy.
+     * Loading thread reads data as is.
+     */
+    private boolean awaitReadable() {
+        if (loaded || Thread.currentThread() == loadingThread) {
+            return true;
+        }
+        if (readPolicy == ReadPolicy.RETURN_DEFAULTS) {
+            return false;
+        }
+        awaitLoad();
+        return true;
+    }
+
+    /**
+     * Waits for initial load before mutation, whatever read policy is,
+     * so loaded data doesn't replace changes, made while it was read.
+     */
+    private void awaitWritable() {
+        if (!loaded && Thread.currentThread() != loadingThread) {
+            awaitLoad();
+        }
+    }
+
+    /**
+     * Waits for initial load uninterruptibly.
+     *
+     * @throws IllegalStateException if called on the scheduler thread, as load is queued
+     *                               behind the current task and is never finished.
+     */
+    private void awaitLoad() {
+        if (!loaded && async && scheduler.isWorkerThread()) {
+            throw new IllegalStateException("Initial load can't be awaited on scheduler thread");
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                loadLatch.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns true if initial load is finished, successfully or not.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Waits for initial load to finish.
+     *
+     * @return true if load is finished and false if timeout elapsed.
+     */
+    public boolean awaitLoaded(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        return loadLatch.await(timeout, unit);
+    }
+
+    /**
+     * Returns future, that is completed with this Minion, when initial load is finished,
+     * or with load failure.
+     */
+    @NonNull
+    public Future<Minion> getLoadFuture() {
+        return new LoadFuture();
+    }
+
     private void loadSync(@NonNull ResultCallback callback) {
         try {
             if (readable != null) {
-                final InputStream inputStream = readable.read();
-                parse(inputStream);
+                if (valueIndex != null) {
+                    // Value index will be rebuilt on first query.
+                    valueIndex.invalidate();
+                }
+                Fingerprint fingerprint = fingerprintOf(readable);
+                if (readable instanceof CharSequenceReadable) {
+                    // Decoded characters are parsed as is, there are no bytes to checksum.
+                    IniParser.parse(((CharSequenceReadable) readable).readChars(), new LoadHandler());
+                    loadedFingerprint = fingerprint;
+                } else {
+                    CheckedInputStream inputStream = new CheckedInputStream(readable.read(), new CRC32());
+                    IniParser.parse(inputStream, charset, new LoadHandler());
+                    loadedFingerprint = fingerprint;
+                    if (readable == writable) {
+                        storedFingerprint = fingerprint;
+                        storedHash = inputStream.getChecksum().getValue();
+                    }
+                }
             }
             callback.onReady(this);
         } catch (Exception ex) {
@@ -251,155 +1179,306 @@ public class Minion {
         }
     }
 
-    private int charCountInString(String str, char c) {
-        int count = 0;
-        for (int i = 0; i < str.length(); i++) {
-            if (str.charAt(i) == c) {
-                count++;
+    /**
+     * Reloads data, if it was changed since last load or store.
+     * Change is detected by fingerprint of the storage, so data is not read,
+     * if fingerprint is the same. Storage, that is not {@link Fingerprintable},
+     * can't tell about changes, so its data is read on every refresh.
+     * Data is cleared and loaded again in place, so only {@link #read(Reader)} is guaranteed
+     * to see either old or new data, while other reads may see groups missing meanwhile.
+     */
+    public void refresh(@NonNull final ResultCallback callback) {
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                refreshSync(callback);
             }
+        };
+        if (async) {
+            scheduler.load(this, runnable, callback);
+        } else {
+            runnable.run();
         }
-        return count;
     }
 
-    private void parse(@NonNull InputStream inputStream) throws IOException, UnsupportedFormatException {
-        BufferedReader reader = null;
+    public void refresh() {
+        refresh(new EmptyResultCallback());
+    }
+
+    private void refreshSync(@NonNull ResultCallback callback) {
         try {
-            reader = new BufferedReader(new InputStreamReader(inputStream));
-            String line;
-            IniGroup lastGroup = new IniGroup(DEFAULT_GROUP_NAME);
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (startsWithChar(line, COMMENT_START_UNIX)
-                        || startsWithChar(line, COMMENT_START_WINDOWS)
-                        || line.startsWith(COMMENT_START_SLASH)) {
-                    continue;
+            awaitWrites();
+            if (readable == null || isLoadedDataActual()) {
+                callback.onReady(this);
+                return;
+            }
+        } catch (IOException ex) {
+            callback.onFailure(ex);
+            return;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            callback.onFailure(ex);
+            return;
+        }
+        final Exception[] failure = {null};
+        // Reload is one atomic write, so read(Reader) never observes cleared or partially
+        // reloaded data. Plain reads don't take the lock and may observe it.
+        beginWrite();
+        try {
+            clear();
+            loadSync(new ResultCallback() {
+                @Override
+                public void onReady(Minion minion) {
                 }
 
-                if (startsWithChar(line, GROUP_START) && containsChar(line, GROUP_END)) {
-                    boolean groupEnded = false;
-                    if (endsWithChar(line.trim(), GROUP_END)) {
-                        groupEnded = true;
-                    } else if (line.contains(COMMENT_START_SLASH) &&
-                            endsWithChar(line.split(COMMENT_START_SLASH)[0].trim(), GROUP_END)) {
-                        groupEnded = true;
-                    } else if (containsChar(line, COMMENT_START_WINDOWS) &&
-                            endsWithChar(splitByChar(line, COMMENT_START_WINDOWS).get(0).trim(), GROUP_END)) {
-                        groupEnded = true;
-                    } else if (containsChar(line, COMMENT_START_UNIX) &&
-                            endsWithChar(splitByChar(line, COMMENT_START_UNIX).get(0).trim(), GROUP_END)) {
-                        groupEnded = true;
-                    }
-                    if (groupEnded) {
-                        int end = line.indexOf(GROUP_END);
-                        String name = line.substring(1, end);
-                        lastGroup = addGroup(name);
-                        continue;
-                    }
+                @Override
+                public void onFailure(Exception ex) {
+                    failure[0] = ex;
                 }
+            });
+        } finally {
+            endWrite();
+        }
+        if (failure[0] != null) {
+            callback.onFailure(failure[0]);
+        } else {
+            callback.onReady(this);
+        }
+    }
 
-                if (containsChar(line, KEY_VALUE_DIVIDER)
-                        && shouldTreatAsKeyValueGroup(splitByChar(line, KEY_VALUE_DIVIDER).get(0).trim())) {
-                    int index = line.indexOf(KEY_VALUE_DIVIDER);
-                    if (index <= 0) {
-                        UnsupportedFormatException e = new UnsupportedFormatException(line);
-                        e.printStackTrace();
-                        throw e;
-                    }
-                    String key = line.substring(0, index).trim();
-                    String value = line.substring(index + 1);
-
-                    List<String> arrayValue = splitByChar(value, ARRAY_VALUE_DELIMITER);
-                    // merge value wrapped by double quote
-                    StringBuilder builder = new StringBuilder();
-                    boolean ended = false;
-                    List<Integer> indexToRemove = new ArrayList<>();
-                    for (int currentIndex = 0; currentIndex < arrayValue.size(); currentIndex++) {
-                        String current = arrayValue.get(currentIndex);
-                        int currentDoubleQuoteCount = charCountInString(current, '"');
-                        if (currentDoubleQuoteCount == 1) {
-                            if (builder.length() == 0) {
-                                // start
-                                builder.append(current);
-                                indexToRemove.add(currentIndex);
-                            } else {
-                                if (current.trim().endsWith("\"")) {
-                                    // end
-                                    builder.append(",").append(current);
-                                    indexToRemove.add(currentIndex);
-                                    ended = true;
-                                }
-                            }
-                        } else if (currentDoubleQuoteCount == 0 && (builder.length() > 0)) {
-                            // middle
-                            builder.append(",").append(current);
-                            indexToRemove.add(currentIndex);
-                        }
-                        if (ended) {
-                            break;
-                        }
-                    }
+    private boolean isLoadedDataActual() throws IOException {
+        Fingerprint fingerprint = loadedFingerprint;
+        return fingerprint != null && fingerprint.equals(fingerprintOf(readable));
+    }
 
-                    if (ended) {
-                        for (int i = indexToRemove.size() - 1; i >= 0; i--) {
-                            int arrayIndex = indexToRemove.get(i);
-                            arrayValue.remove(arrayIndex);
-                            if (i == 0) {
-                                arrayValue.add(arrayIndex, builder.toString());
-                            }
-                        }
-                    }
+    @Nullable
+    private static Fingerprint fingerprintOf(Object storage) throws IOException {
+        if (storage instanceof Fingerprintable) {
+            return ((Fingerprintable) storage).getFingerprint();
+        }
+        return null;
+    }
 
-                    List<String> values = new ArrayList<>();
-                    for (int i = 0; i < arrayValue.size(); i++) {
-                        if (i == arrayValue.size() - 1) {
-                            String last = arrayValue.get(i);
-                            index = indexOfComment(last);
-                            if (index != -1) {
-                                values.add(last.substring(0, index).trim());
-                            } else {
-                                values.add(last);
-                            }
-                        } else {
-                            String current = arrayValue.get(i).trim();
-                            String next = arrayValue.get(i + 1).trim();
-                            if (startsWithChar(current, '"') && !startsWithChar(current, '"')
-                                    && !startsWithChar(next, '"') && endsWithChar(next, '"')) {
-                                values.add((arrayValue.get(i) + "," + arrayValue.get(i + 1)));
-                                i++;
-                            } else {
-                                values.add(current);
-                            }
-                        }
-                    }
-                    lastGroup.getOrCreateRecord(key, values.toArray(new String[0]));
-                } else if (containsChar(line, ARRAY_VALUE_DELIMITER)) {
-                    List<String> arrayValue = splitByChar(line, ARRAY_VALUE_DELIMITER);
-                    String last = arrayValue.get(arrayValue.size() - 1);
-                    int cIndex = indexOfComment(last);
-                    if (cIndex != -1) {
-                        arrayValue.set(arrayValue.size() - 1, last.substring(0, cIndex).trim());
-                    }
-                    lastGroup.getOrCreateRecord(line, arrayValue.toArray(new String[0]));
-                }
-            }
-        } finally {
-            safeClose(reader);
+    private static long checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    private class GenerationTracker implements MutationListener {
+
+        @Override
+        public void onGroupAdded(@NonNull IniGroup group) {
+            generation.incrementAndGet();
+        }
+
+        @Override
+        public void onGroupRemoved(@NonNull IniGroup group) {
+            generation.incrementAndGet();
+        }
+
+        @Override
+        public void onRecordAdded(@NonNull IniGroup group, @NonNull IniRecord record) {
+        }
+
+        @Override
+        public void onRecordRemoved(@NonNull IniGroup group, @NonNull IniRecord record) {
         }
+
+        @Override
+        public void onValueChanged(@NonNull IniGroup group, @NonNull IniRecord record,
+                                   @Nullable String[] oldValue) {
+        }
+
+        @Override
+        public boolean isOldValueRequired(@NonNull IniRecord record) {
+            return false;
+        }
+
+        @Override
+        public void onSizeChanged(@NonNull IniGroup group, long delta) {
+        }
+
+        @Override
+        public void onCleared() {
+            generation.incrementAndGet();
+        }
+
+        @Override
+        public void onLockReleased() {
+        }
+
+    }
+
+    private class FootprintTracker implements MutationListener {
+
+        @Override
+        public void onGroupAdded(@NonNull IniGroup group) {
+            groupsFootprint.addAndGet(group.estimateFootprint());
+        }
+
+        @Override
+        public void onGroupRemoved(@NonNull IniGroup group) {
+            groupsFootprint.addAndGet(-group.estimateFootprint());
+        }
+
+        @Override
+        public void onRecordAdded(@NonNull IniGroup group, @NonNull IniRecord record) {
+        }
+
+        @Override
+        public void onRecordRemoved(@NonNull IniGroup group, @NonNull IniRecord record) {
+        }
+
+        @Override
+        public void onValueChanged(@NonNull IniGroup group, @NonNull IniRecord record,
+                                   @Nullable String[] oldValue) {
+        }
+
+        @Override
+        public boolean isOldValueRequired(@NonNull IniRecord record) {
+            return false;
+        }
+
+        @Override
+        public void onSizeChanged(@NonNull IniGroup group, long delta) {
+            groupsFootprint.addAndGet(delta);
+        }
+
+        @Override
+        public void onCleared() {
+            groupsFootprint.set(0);
+        }
+
+        @Override
+        public void onLockReleased() {
+        }
+
     }
 
-    private boolean shouldTreatAsKeyValueGroup(String key) {
-        return !containsChar(key, ARRAY_VALUE_DELIMITER) || (startsWithChar(key, '"') && endsWithChar(key, '"'));
+    static class StoreData {
+
+        final byte[] data;
+        final long hash;
+
+        StoreData(byte[] data, long hash) {
+            this.data = data;
+            this.hash = hash;
+        }
+
     }
 
-    private static int indexOfComment(String value) {
-        int index = value.indexOf(COMMENT_END_SLASH);
-        if (index == -1) {
-            index = value.indexOf(COMMENT_END_UNIX);
+    private class StampTracker implements MutationListener {
+
+        @Override
+        public void onGroupAdded(@NonNull IniGroup group) {
+            stamp.addAndGet(2);
+        }
+
+        @Override
+        public void onGroupRemoved(@NonNull IniGroup group) {
+            stamp.addAndGet(2);
+        }
+
+        @Override
+        public void onRecordAdded(@NonNull IniGroup group, @NonNull IniRecord record) {
+            stamp.addAndGet(2);
+        }
+
+        @Override
+        public void onRecordRemoved(@NonNull IniGroup group, @NonNull IniRecord record) {
+            stamp.addAndGet(2);
+        }
+
+        @Override
+        public void onValueChanged(@NonNull IniGroup group, @NonNull IniRecord record,
+                                   @Nullable String[] oldValue) {
+            stamp.addAndGet(2);
         }
-        if (index == -1) {
-            index = value.indexOf(COMMENT_END_WINDOWS);
+
+        @Override
+        public boolean isOldValueRequired(@NonNull IniRecord record) {
+            return false;
+        }
+
+        @Override
+        public void onSizeChanged(@NonNull IniGroup group, long delta) {
+        }
+
+        @Override
+        public void onCleared() {
+            stamp.addAndGet(2);
+        }
+
+        @Override
+        public void onLockReleased() {
         }
-        return index;
+
+    }
+
+    private class LoadFuture implements Future<Minion> {
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return loaded;
+        }
+
+        @Override
+        public Minion get() throws InterruptedException, ExecutionException {
+            loadLatch.await();
+            return result();
+        }
+
+        @Override
+        public Minion get(long timeout, @NonNull TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!loadLatch.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return result();
+        }
+
+        private Minion result() throws ExecutionException {
+            Exception failure = loadFailure;
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return Minion.this;
+        }
+
+    }
+
+    private class LoadHandler implements IniParser.Handler {
+
+        private IniGroup lastGroup = new IniGroup(DEFAULT_GROUP_NAME);
+
+        @Override
+        public boolean onGroup(@NonNull String name) {
+            if (groupFilter != null && !groupFilter.accept(name)) {
+                return false;
+            }
+            synchronized (groups) {
+                lastGroup = addGroup(name);
+            }
+            deliverEvictions();
+            return true;
+        }
+
+        @Override
+        public void onRecord(@NonNull String key, @NonNull String rawValue, boolean array) {
+            lastGroup.getOrCreateRawRecord(key, rawValue, array);
+        }
+
     }
 
     public static Builder lets() {
@@ -411,7 +1490,19 @@ public class Minion {
         private Readable readable;
         private Writable writable;
         private boolean async;
+        private boolean indexKeys;
+        private boolean indexValues;
+        private Set<String> indexedValueKeys;
+        private GroupFilter groupFilter;
+        private Charset charset = DEFAULT_CHARSET;
+        private int maxGroups;
+        private long maxSize;
+        private EvictionListener evictionListener;
+        private boolean offHeapValues;
+        private int valuesCacheSize;
         private ResultCallback callback;
+        private MinionScheduler scheduler = MinionScheduler.getDefault();
+        private ReadPolicy readPolicy = ReadPolicy.BLOCK;
 
         private Builder() {
         }
@@ -426,6 +1517,125 @@ public class Minion {
             return this;
         }
 
+        /**
+         * Enables sorted index over group names and record keys,
+         * which is required for prefix and range queries.
+         */
+        public Builder indexKeys() {
+            this.indexKeys = true;
+            return this;
+        }
+
+        /**
+         * Enables reverse index from values of records with specified keys to these records.
+         * If no keys specified, records with any key are indexed.
+         */
+        public Builder indexValues(@NonNull String... keys) {
+            this.indexValues = true;
+            this.indexedValueKeys = keys.length > 0 ? new HashSet<>(Arrays.asList(keys)) : null;
+            return this;
+        }
+
+        /**
+         * Loads only groups with specified names, skipping others while parsing.
+         */
+        public Builder loadGroups(@NonNull String... names) {
+            final Set<String> accepted = new HashSet<>(Arrays.asList(names));
+            return loadGroups(new GroupFilter() {
+                @Override
+                public boolean accept(@NonNull String name) {
+                    return accepted.contains(name);
+                }
+            });
+        }
+
+        /**
+         * Loads only groups accepted by filter, skipping others while parsing.
+         * Resulting Minion refuses to create other groups and preserves them as is on store.
+         * Reads of other groups return default values.
+         */
+        public Builder loadGroups(@NonNull GroupFilter filter) {
+            this.groupFilter = filter;
+            return this;
+        }
+
+        /**
+         * Sets charset of the stored data, UTF-8 by default.
+         */
+        public Builder charset(@NonNull Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Limits groups count, evicting least recently accessed groups on exceeding.
+         */
+        public Builder maxGroups(int maxGroups) {
+            if (maxGroups <= 0) {
+                throw new IllegalArgumentException("Invalid max groups count: " + maxGroups);
+            }
+            this.maxGroups = maxGroups;
+            return this;
+        }
+
+        /**
+         * Limits estimated size of the groups in bytes,
+         * evicting least recently accessed groups on exceeding.
+         */
+        public Builder maxSize(long maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("Invalid max size: " + maxSize);
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder onEvicted(@NonNull EvictionListener listener) {
+            this.evictionListener = listener;
+            return this;
+        }
+
+        /**
+         * Stores values of the records off-heap, as UTF-8 in direct byte buffers.
+         * Strings are created only on value access.
+         */
+        public Builder offHeapValues() {
+            return offHeapValues(ValueArena.DEFAULT_CACHE_SIZE);
+        }
+
+        /**
+         * Stores values of the records off-heap, as UTF-8 in direct byte buffers.
+         * Strings are created only on value access, and recently accessed ones are cached.
+         *
+         * @param cacheSize count of the recently accessed values to be kept on heap.
+         */
+        public Builder offHeapValues(int cacheSize) {
+            if (cacheSize < 0) {
+                throw new IllegalArgumentException("Invalid cache size: " + cacheSize);
+            }
+            this.offHeapValues = true;
+            this.valuesCacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * Sets scheduler of the asynchronous loads and stores.
+         * By default, all instances share {@link MinionScheduler#getDefault()}.
+         */
+        public Builder scheduler(@NonNull MinionScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Sets behaviour of the reads, requested while asynchronous load is in progress.
+         * By default, reads are blocked until data is loaded.
+         */
+        public Builder readPolicy(@NonNull ReadPolicy readPolicy) {
+            this.readPolicy = readPolicy;
+            return this;
+        }
+
         public Builder and() {
             // Empty method just for better syntax.
             return this;
@@ -467,7 +1677,7 @@ public class Minion {
         }
 
         private Minion build() {
-            Minion minion = new Minion(readable, writable, async);
+            Minion minion = new Minion(this);
             minion.load(callback);
             return minion;
         }
@@ -0,0 +1,333 @@
+package com.tomclaw.minion;
+
+import static com.tomclaw.minion.StreamHelper.safeClose;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tomclaw.minion.storage.FileStorage;
+import com.tomclaw.minion.storage.Writable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stores several minions in one I/O pass.
+ * Data is serialized in parallel, files are written to temporary siblings and synced,
+ * and only after all of them reached the disk they are renamed over the targets,
+ * directory by directory. Result of every minion is reported to its own callback.
+ * Writables, that are not files, are written directly after the files are renamed.
+ * <p>
+ * Batch takes write slots of its minions, so asynchronous stores of the same minions
+ * are queued until commit is finished. Commits of all batches are executed one by one,
+ * so slots are never awaited in conflicting order.
+ */
+@SuppressWarnings("WeakerAccess")
+public class MinionBatch {
+
+    private static final String TEMP_PREFIX = "minion";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Object COMMIT_LOCK = new Object();
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private MinionBatch() {
+    }
+
+    @NonNull
+    public MinionBatch add(@NonNull Minion minion) {
+        return add(minion, null);
+    }
+
+    /**
+     * @throws IllegalArgumentException if minion has no writable storage, or it's already added,
+     *                                  or another added minion has the same storage.
+     */
+    @NonNull
+    public MinionBatch add(@NonNull Minion minion, @Nullable ResultCallback callback) {
+        Writable writable = minion.getWritable();
+        if (writable == null) {
+            throw new IllegalArgumentException("Minion has no writable storage");
+        }
+        synchronized (entries) {
+            for (Entry entry : entries) {
+                if (entry.minion == minion || isSameTarget(entry.writable, writable)) {
+                    throw new IllegalArgumentException("Storage of the Minion is already added");
+                }
+            }
+            entries.add(new Entry(minion, writable, callback));
+        }
+        return this;
+    }
+
+    private static boolean isSameTarget(Writable first, Writable second) {
+        if (first == second) {
+            return true;
+        }
+        return first instanceof FileStorage && second instanceof FileStorage
+                && ((FileStorage) first).getFile().getAbsoluteFile()
+                .equals(((FileStorage) second).getFile().getAbsoluteFile());
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Stores all added minions and reports results to their callbacks.
+     * Batch is empty after commit and may be reused.
+     * Blocks until all data is written, so it shouldn't be called on the main thread.
+     */
+    public void commit() {
+        List<Entry> entries;
+        synchronized (this.entries) {
+            entries = new ArrayList<>(this.entries);
+            this.entries.clear();
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        synchronized (COMMIT_LOCK) {
+            for (Entry entry : entries) {
+                entry.acquire();
+            }
+            try {
+                store(entries);
+            } finally {
+                for (Entry entry : entries) {
+                    entry.release();
+                }
+            }
+        }
+        for (Entry entry : entries) {
+            entry.notifyResult();
+        }
+    }
+
+    private static void store(List<Entry> entries) {
+        serialize(entries);
+
+        Map<File, List<Entry>> directories = new LinkedHashMap<>();
+        List<Entry> streams = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.isPending()) {
+                if (entry.writable instanceof FileStorage) {
+                    File file = ((FileStorage) entry.writable).getFile().getAbsoluteFile();
+                    File directory = file.getParentFile();
+                    List<Entry> directoryEntries = directories.get(directory);
+                    if (directoryEntries == null) {
+                        directoryEntries = new ArrayList<>();
+                        directories.put(directory, directoryEntries);
+                    }
+                    entry.file = file;
+                    directoryEntries.add(entry);
+                } else {
+                    streams.add(entry);
+                }
+            }
+        }
+
+        for (List<Entry> directoryEntries : directories.values()) {
+            for (Entry entry : directoryEntries) {
+                writeTemp(entry);
+            }
+        }
+        // Barrier: every temporary file is synced, so renames expose complete data only.
+        for (List<Entry> directoryEntries : directories.values()) {
+            for (Entry entry : directoryEntries) {
+                rename(entry);
+            }
+        }
+        for (Entry entry : streams) {
+            writeStream(entry);
+        }
+    }
+
+    private static void serialize(List<Entry> entries) {
+        int threads = Math.min(entries.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            for (Entry entry : entries) {
+                entry.prepare();
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(entries.size());
+            for (final Entry entry : entries) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        entry.prepare();
+                        return null;
+                    }
+                }));
+            }
+            for (int c = 0; c < futures.size(); c++) {
+                try {
+                    futures.get(c).get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    entries.get(c).fail(ex);
+                } catch (ExecutionException ex) {
+                    entries.get(c).fail(ex);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void writeTemp(Entry entry) {
+        File temp = null;
+        FileOutputStream outputStream = null;
+        try {
+            // Name is unique, so temporary file is not shared with other writers.
+            temp = File.createTempFile(TEMP_PREFIX, TEMP_SUFFIX, entry.file.getParentFile());
+            outputStream = new FileOutputStream(temp);
+            outputStream.write(entry.storeData.data);
+            outputStream.flush();
+            outputStream.getFD().sync();
+            outputStream.close();
+            entry.temp = temp;
+        } catch (IOException ex) {
+            entry.fail(ex);
+        } finally {
+            safeClose(outputStream);
+            if (entry.temp == null && temp != null) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+            }
+        }
+    }
+
+    private static void rename(Entry entry) {
+        if (entry.temp == null) {
+            return;
+        }
+        try {
+            if (!entry.temp.renameTo(entry.file)) {
+                throw new IOException("Unable to rename " + entry.temp + " to " + entry.file);
+            }
+            entry.complete();
+        } catch (IOException ex) {
+            //noinspection ResultOfMethodCallIgnored
+            entry.temp.delete();
+            entry.fail(ex);
+        }
+    }
+
+    private static void writeStream(Entry entry) {
+        OutputStream outputStream = null;
+        try {
+            outputStream = entry.writable.write();
+            outputStream.write(entry.storeData.data);
+            outputStream.close();
+            entry.complete();
+        } catch (IOException ex) {
+            entry.fail(ex);
+        } finally {
+            safeClose(outputStream);
+        }
+    }
+
+    private static class Entry {
+
+        final Minion minion;
+        final Writable writable;
+        @Nullable
+        final ResultCallback callback;
+        @Nullable
+        Minion.StoreData storeData;
+        @Nullable
+        File file;
+        @Nullable
+        File temp;
+        @Nullable
+        Exception failure;
+        boolean done;
+        boolean acquired;
+
+        Entry(Minion minion, Writable writable, @Nullable ResultCallback callback) {
+            this.minion = minion;
+            this.writable = writable;
+            this.callback = callback;
+        }
+
+        void acquire() {
+            try {
+                minion.acquireWrite();
+                acquired = true;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                fail(ex);
+            }
+        }
+
+        void release() {
+            if (acquired) {
+                acquired = false;
+                minion.releaseWrite();
+            }
+        }
+
+        void prepare() {
+            if (failure != null) {
+                return;
+            }
+            try {
+                storeData = minion.prepareStore();
+                done = storeData == null;
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+
+        boolean isPending() {
+            return !done && failure == null;
+        }
+
+        void complete() throws IOException {
+            minion.completeStore(storeData);
+            done = true;
+        }
+
+        void fail(Exception ex) {
+            if (failure == null) {
+                failure = ex instanceof ExecutionException && ex.getCause() instanceof Exception
+                        ? (Exception) ex.getCause() : ex;
+            }
+        }
+
+        void notifyResult() {
+            if (callback == null) {
+                return;
+            }
+            if (failure != null) {
+                callback.onFailure(failure);
+            } else {
+                callback.onReady(minion);
+            }
+        }
+
+    }
+
+    @NonNull
+    public static MinionBatch create() {
+        return new MinionBatch();
+    }
+
+}
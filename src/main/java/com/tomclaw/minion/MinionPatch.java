@@ -0,0 +1,108 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered set of changes, that transforms one Minion into another.
+ * Created by {@link Minion#diff(Minion)} and applied by {@link Minion#apply(MinionPatch)}.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class MinionPatch {
+
+    public enum Type {
+        ADD_GROUP,
+        REMOVE_GROUP,
+        SET_RECORD,
+        REMOVE_RECORD
+    }
+
+    @NonNull
+    private final List<Change> changes;
+
+    MinionPatch(@NonNull List<Change> changes) {
+        this.changes = Collections.unmodifiableList(new ArrayList<>(changes));
+    }
+
+    @NonNull
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    @Override
+    public String toString() {
+        return changes.toString();
+    }
+
+    public static final class Change {
+
+        @NonNull
+        private final Type type;
+        @NonNull
+        private final String name;
+        @Nullable
+        private final String key;
+        @Nullable
+        private final String[] value;
+
+        Change(@NonNull Type type, @NonNull String name, @Nullable String key, @Nullable String[] value) {
+            this.type = type;
+            this.name = name;
+            this.key = key;
+            this.value = value;
+        }
+
+        @NonNull
+        public Type getType() {
+            return type;
+        }
+
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return record key or null, if change is related to the whole group.
+         */
+        @Nullable
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return new record value or null, if record or group is removed.
+         */
+        @Nullable
+        public String[] getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder().append(type).append(' ').append(name);
+            if (key != null) {
+                builder.append('.').append(key);
+            }
+            if (value != null) {
+                builder.append('=').append(Arrays.toString(value));
+            }
+            return builder.toString();
+        }
+
+    }
+
+}
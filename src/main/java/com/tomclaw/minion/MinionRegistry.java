@@ -0,0 +1,171 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+import com.tomclaw.minion.storage.FileStorage;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Shares loaded Minion instances between components of the process.
+ * Instances are reference counted: every {@link #acquire(String, Minion.Builder)} must be paired
+ * with {@link #release(Minion)}. Released instances are kept idle for reuse until their
+ * estimated size exceeds memory budget, then least recently released ones are evicted.
+ * Concurrent acquires of the same key load data only once.
+ */
+@SuppressWarnings("WeakerAccess")
+public class MinionRegistry {
+
+    public static final long DEFAULT_IDLE_BUDGET = 1024 * 1024;
+
+    private static final MinionRegistry instance = new MinionRegistry(DEFAULT_IDLE_BUDGET);
+
+    private final long idleBudget;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<Minion, Entry> acquired = new LinkedHashMap<>();
+    /**
+     * Idle entries in order of release, the eldest is evicted first.
+     */
+    private final Map<String, Entry> idle = new LinkedHashMap<>();
+    private long idleSize;
+
+    public MinionRegistry(long idleBudget) {
+        this.idleBudget = idleBudget;
+    }
+
+    public static MinionRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns shared Minion, that loads from and stores to specified file.
+     */
+    @NonNull
+    public Minion acquire(@NonNull File file) throws Exception {
+        FileStorage storage = FileStorage.create(file);
+        return acquire(file.getCanonicalPath(), Minion.lets()
+                .load(storage)
+                .and()
+                .store(storage));
+    }
+
+    /**
+     * Returns shared Minion for specified key. If there is no such Minion yet,
+     * it is loaded synchronously with specified builder.
+     */
+    @NonNull
+    public Minion acquire(@NonNull String key, @NonNull final Minion.Builder builder) throws Exception {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(key, new FutureTask<>(new Callable<Minion>() {
+                    @Override
+                    public Minion call() throws Exception {
+                        return builder.sync();
+                    }
+                }));
+                entries.put(key, entry);
+            } else if (entry.references == 0) {
+                removeIdle(entry);
+            }
+            entry.references++;
+        }
+        // Only the first caller actually loads, others are waiting for result.
+        entry.task.run();
+        Minion minion;
+        try {
+            minion = entry.task.get();
+        } catch (ExecutionException ex) {
+            synchronized (this) {
+                if (entries.get(key) == entry) {
+                    entries.remove(key);
+                }
+            }
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw ex;
+        }
+        synchronized (this) {
+            acquired.put(minion, entry);
+        }
+        return minion;
+    }
+
+    /**
+     * Releases Minion, acquired from this registry.
+     * Unreferenced Minion becomes idle and may be evicted any time later.
+     */
+    public synchronized void release(@NonNull Minion minion) {
+        Entry entry = acquired.get(minion);
+        if (entry == null) {
+            throw new IllegalStateException("Minion is not acquired from this registry");
+        }
+        entry.references--;
+        if (entry.references == 0) {
+            acquired.remove(minion);
+            entry.size = minion.estimateFootprint();
+            idle.put(entry.key, entry);
+            idleSize += entry.size;
+            trim();
+        }
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Evicts all idle Minion instances.
+     */
+    public synchronized void evictAll() {
+        for (Entry entry : idle.values()) {
+            entries.remove(entry.key);
+        }
+        idle.clear();
+        idleSize = 0;
+    }
+
+    private void trim() {
+        Iterator<Entry> iterator = idle.values().iterator();
+        while (idleSize > idleBudget && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            idleSize -= entry.size;
+            entries.remove(entry.key);
+        }
+    }
+
+    private void removeIdle(Entry entry) {
+        if (idle.remove(entry.key) != null) {
+            idleSize -= entry.size;
+        }
+    }
+
+    private static class Entry {
+
+        final String key;
+        final FutureTask<Minion> task;
+        int references;
+        long size;
+
+        Entry(String key, FutureTask<Minion> task) {
+            this.key = key;
+            this.task = task;
+        }
+
+    }
+
+}
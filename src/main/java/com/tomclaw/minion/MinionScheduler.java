@@ -0,0 +1,315 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executes asynchronous loads and stores of Minion instances one by one on a worker thread.
+ * Loads are executed before stores, except stores of the same Minion, requested earlier.
+ * Store of the Minion, that already has pending store, is merged with it,
+ * as data is serialized only when store is executed.
+ * Queue is bounded and {@link OverflowPolicy} decides, what happens to tasks on overflow.
+ */
+@SuppressWarnings("WeakerAccess")
+public class MinionScheduler {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    public enum OverflowPolicy {
+        /**
+         * Caller waits for free space in the queue.
+         * Tasks, requested from callbacks on the worker thread, are queued over capacity.
+         */
+        BLOCK,
+        /**
+         * Task is not queued and its callback receives {@link RejectedExecutionException}.
+         */
+        REJECT,
+        /**
+         * Task is executed on the calling thread.
+         */
+        CALLER_RUNS
+    }
+
+    private static final MinionScheduler defaultScheduler =
+            new MinionScheduler(DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+
+    private final int capacity;
+    @NonNull
+    private final OverflowPolicy policy;
+
+    private final LinkedList<Task> loads = new LinkedList<>();
+    private final LinkedList<StoreTask> stores = new LinkedList<>();
+    private final Map<Minion, StoreTask> pendingStores = new IdentityHashMap<>();
+    private Thread worker;
+    private long sequence;
+
+    private long executedCount;
+    private long mergedCount;
+    private long rejectedCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    public MinionScheduler(int capacity, @NonNull OverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    @NonNull
+    public static MinionScheduler getDefault() {
+        return defaultScheduler;
+    }
+
+    void load(@NonNull Minion minion, @NonNull Runnable runnable, @NonNull ResultCallback callback) {
+        submit(new LoadTask(minion, runnable, callback));
+    }
+
+    void store(@NonNull Minion minion, @NonNull ResultCallback callback) {
+        submit(new StoreTask(minion, callback));
+    }
+
+    private void submit(Task task) {
+        synchronized (this) {
+            while (true) {
+                if (task instanceof StoreTask) {
+                    StoreTask pending = pendingStores.get(task.minion);
+                    if (pending != null) {
+                        pending.callbacks.addAll(((StoreTask) task).callbacks);
+                        mergedCount++;
+                        return;
+                    }
+                }
+                if (getQueueDepth() < capacity || Thread.currentThread() == worker) {
+                    enqueue(task);
+                    return;
+                }
+                if (policy != OverflowPolicy.BLOCK) {
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    rejectedCount++;
+                    task.reject(new RejectedExecutionException("Interrupted while waiting"));
+                    return;
+                }
+            }
+            if (policy == OverflowPolicy.REJECT) {
+                rejectedCount++;
+            }
+        }
+        // Overflow is handled outside of the lock, as task may be long.
+        if (policy == OverflowPolicy.REJECT) {
+            task.reject(new RejectedExecutionException("Queue is full"));
+        } else {
+            task.run();
+        }
+    }
+
+    private void enqueue(Task task) {
+        task.sequence = sequence++;
+        task.enqueuedAt = System.nanoTime();
+        if (task instanceof StoreTask) {
+            stores.add((StoreTask) task);
+            pendingStores.put(task.minion, (StoreTask) task);
+        } else {
+            loads.add(task);
+        }
+        if (worker == null) {
+            worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }, "Minion");
+            worker.setDaemon(true);
+            worker.start();
+        }
+        notifyAll();
+    }
+
+    private void work() {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                while ((task = poll()) == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                long wait = System.nanoTime() - task.enqueuedAt;
+                executedCount++;
+                totalWaitNanos += wait;
+                maxWaitNanos = Math.max(maxWaitNanos, wait);
+                // Blocked callers may proceed.
+                notifyAll();
+            }
+            try {
+                task.run();
+            } catch (Throwable ignored) {
+                // Worker must survive failures of the callbacks.
+            }
+        }
+    }
+
+    /**
+     * Takes the first load, that has no earlier pending store of the same Minion,
+     * or the eldest store otherwise.
+     */
+    private Task poll() {
+        Iterator<Task> iterator = loads.iterator();
+        while (iterator.hasNext()) {
+            Task load = iterator.next();
+            StoreTask store = pendingStores.get(load.minion);
+            if (store == null || store.sequence > load.sequence) {
+                iterator.remove();
+                return load;
+            }
+        }
+        StoreTask store = stores.poll();
+        if (store != null) {
+            pendingStores.remove(store.minion);
+        }
+        return store;
+    }
+
+    /**
+     * Returns true if called by the worker thread, so queued tasks can't be awaited.
+     */
+    synchronized boolean isWorkerThread() {
+        return Thread.currentThread() == worker;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @NonNull
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns count of the tasks, waiting for execution.
+     */
+    public synchronized int getQueueDepth() {
+        return loads.size() + stores.size();
+    }
+
+    public synchronized long getExecutedCount() {
+        return executedCount;
+    }
+
+    /**
+     * Returns count of the stores, merged with already pending ones.
+     */
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Returns average time between queueing and execution of the tasks.
+     */
+    public synchronized long getAverageWaitNanos() {
+        return executedCount > 0 ? totalWaitNanos / executedCount : 0;
+    }
+
+    public synchronized long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    private abstract static class Task {
+
+        final Minion minion;
+        long sequence;
+        long enqueuedAt;
+
+        Task(Minion minion) {
+            this.minion = minion;
+        }
+
+        abstract void run();
+
+        abstract void reject(Exception ex);
+
+    }
+
+    private static class LoadTask extends Task {
+
+        private final Runnable runnable;
+        private final ResultCallback callback;
+
+        LoadTask(Minion minion, Runnable runnable, ResultCallback callback) {
+            super(minion);
+            this.runnable = runnable;
+            this.callback = callback;
+        }
+
+        @Override
+        void run() {
+            runnable.run();
+        }
+
+        @Override
+        void reject(Exception ex) {
+            callback.onFailure(ex);
+        }
+
+    }
+
+    private static class StoreTask extends Task implements ResultCallback {
+
+        /**
+         * Callbacks of all merged stores, guarded by scheduler.
+         */
+        final List<ResultCallback> callbacks = new ArrayList<>(1);
+
+        StoreTask(Minion minion, ResultCallback callback) {
+            super(minion);
+            callbacks.add(callback);
+        }
+
+        @Override
+        void run() {
+            minion.storeSync(this);
+        }
+
+        @Override
+        void reject(Exception ex) {
+            onFailure(ex);
+        }
+
+        @Override
+        public void onReady(Minion minion) {
+            // Task is not pending anymore, so list is not changed.
+            for (ResultCallback callback : callbacks) {
+                callback.onReady(minion);
+            }
+        }
+
+        @Override
+        public void onFailure(Exception ex) {
+            for (ResultCallback callback : callbacks) {
+                callback.onFailure(ex);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Forwards mutation events to every registered listener.
+ */
+class MutationDispatcher implements MutationListener {
+
+    private final List<MutationListener> listeners = new CopyOnWriteArrayList<>();
+
+    void addListener(@NonNull MutationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void onGroupAdded(@NonNull IniGroup group) {
+        for (MutationListener listener : listeners) {
+            listener.onGroupAdded(group);
+        }
+    }
+
+    @Override
+    public void onGroupRemoved(@NonNull IniGroup group) {
+        for (MutationListener listener : listeners) {
+            listener.onGroupRemoved(group);
+        }
+    }
+
+    @Override
+    public void onRecordAdded(@NonNull IniGroup group, @NonNull IniRecord record) {
+        for (MutationListener listener : listeners) {
+            listener.onRecordAdded(group, record);
+        }
+    }
+
+    @Override
+    public void onRecordRemoved(@NonNull IniGroup group, @NonNull IniRecord record) {
+        for (MutationListener listener : listeners) {
+            listener.onRecordRemoved(group, record);
+        }
+    }
+
+    @Override
+    public void onValueChanged(@NonNull IniGroup group, @NonNull IniRecord record,
+                               @Nullable String[] oldValue) {
+        for (MutationListener listener : listeners) {
+            listener.onValueChanged(group, record, oldValue);
+        }
+    }
+
+    @Override
+    public boolean isOldValueRequired(@NonNull IniRecord record) {
+        for (MutationListener listener : listeners) {
+            if (listener.isOldValueRequired(record)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onSizeChanged(@NonNull IniGroup group, long delta) {
+        for (MutationListener listener : listeners) {
+            listener.onSizeChanged(group, delta);
+        }
+    }
+
+    @Override
+    public void onCleared() {
+        for (MutationListener listener : listeners) {
+            listener.onCleared();
+        }
+    }
+
+    @Override
+    public void onLockReleased() {
+        for (MutationListener listener : listeners) {
+            listener.onLockReleased();
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Receives structural changes of groups and records owned by {@link Minion}.
+ */
+interface MutationListener {
+
+    void onGroupAdded(@NonNull IniGroup group);
+
+    void onGroupRemoved(@NonNull IniGroup group);
+
+    void onRecordAdded(@NonNull IniGroup group, @NonNull IniRecord record);
+
+    void onRecordRemoved(@NonNull IniGroup group, @NonNull IniRecord record);
+
+    /**
+     * @param oldValue value before change, or null if no listener
+     *                 {@link #isOldValueRequired(IniRecord) requires} it.
+     */
+    void onValueChanged(@NonNull IniGroup group, @NonNull IniRecord record, @Nullable String[] oldValue);
+
+    /**
+     * Returns true if listener needs value of the record before change.
+     * Old value is not built otherwise, as it may be formatted from numbers.
+     */
+    boolean isOldValueRequired(@NonNull IniRecord record);
+
+    /**
+     * Called, when estimated size of the group changes by specified delta in bytes.
+     */
+    void onSizeChanged(@NonNull IniGroup group, long delta);
+
+    void onCleared();
+
+    /**
+     * Called after change, when lock of the groups is released by the changing thread.
+     * Callbacks of the users, collected during change, are delivered here, so they never
+     * run holding the lock.
+     */
+    void onLockReleased();
+
+}
@@ -0,0 +1,275 @@
+package com.tomclaw.minion;
+
+import static com.tomclaw.minion.IniParser.ARRAY_VALUE_DELIMITER;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Parses comma-separated numbers into primitive arrays and formats them back.
+ * Raw values are parsed in place, without splitting into strings.
+ * Blank value is treated as an empty array.
+ */
+class NumberArrays {
+
+    private NumberArrays() {
+    }
+
+    /**
+     * @return numbers of the raw value or null, if value is not a plain list of numbers
+     * and must be split as usual, because it may contain quotes or comments.
+     */
+    @Nullable
+    static int[] parseInts(@NonNull String raw) {
+        int end = plainEnd(raw);
+        if (end == -1) {
+            return null;
+        }
+        int[] result = new int[count(raw, end)];
+        int from = 0;
+        for (int c = 0; c < result.length; c++) {
+            int to = tokenEnd(raw, from, end);
+            long value = parseLong(raw, from, to);
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Value out of range: " + raw.substring(from, to));
+            }
+            result[c] = (int) value;
+            from = to + 1;
+        }
+        return result;
+    }
+
+    @Nullable
+    static long[] parseLongs(@NonNull String raw) {
+        int end = plainEnd(raw);
+        if (end == -1) {
+            return null;
+        }
+        long[] result = new long[count(raw, end)];
+        int from = 0;
+        for (int c = 0; c < result.length; c++) {
+            int to = tokenEnd(raw, from, end);
+            result[c] = parseLong(raw, from, to);
+            from = to + 1;
+        }
+        return result;
+    }
+
+    @Nullable
+    static double[] parseDoubles(@NonNull String raw) {
+        int end = plainEnd(raw);
+        if (end == -1) {
+            return null;
+        }
+        double[] result = new double[count(raw, end)];
+        int from = 0;
+        for (int c = 0; c < result.length; c++) {
+            int to = tokenEnd(raw, from, end);
+            result[c] = Double.parseDouble(raw.substring(from, to).trim());
+            from = to + 1;
+        }
+        return result;
+    }
+
+    @NonNull
+    static int[] parseInts(@NonNull String[] values) {
+        if (isBlank(values)) {
+            return new int[0];
+        }
+        int[] result = new int[values.length];
+        for (int c = 0; c < values.length; c++) {
+            result[c] = Integer.parseInt(values[c]);
+        }
+        return result;
+    }
+
+    @NonNull
+    static long[] parseLongs(@NonNull String[] values) {
+        if (isBlank(values)) {
+            return new long[0];
+        }
+        long[] result = new long[values.length];
+        for (int c = 0; c < values.length; c++) {
+            result[c] = Long.parseLong(values[c]);
+        }
+        return result;
+    }
+
+    @NonNull
+    static double[] parseDoubles(@NonNull String[] values) {
+        if (isBlank(values)) {
+            return new double[0];
+        }
+        double[] result = new double[values.length];
+        for (int c = 0; c < values.length; c++) {
+            result[c] = Double.parseDouble(values[c]);
+        }
+        return result;
+    }
+
+    /**
+     * Checks, that integers of the plain raw value are written exactly as they will be formatted,
+     * so raw value may be replaced with parsed numbers without changing stored data.
+     * Blank value is not canonical, as it is split into one empty value, but has no numbers.
+     */
+    static boolean isCanonical(@NonNull String raw) {
+        int end = plainEnd(raw);
+        if (end <= 0) {
+            return false;
+        }
+        int from = 0;
+        while (from < end) {
+            int to = tokenEnd(raw, from, end);
+            int start = trimStart(raw, from, to);
+            int length = trimEnd(raw, start, to) - start;
+            if (length == 0) {
+                return false;
+            }
+            char first = raw.charAt(start);
+            if (first == '+' || (first == '-' && raw.charAt(start + 1) == '0')
+                    || (first == '0' && length > 1)) {
+                return false;
+            }
+            from = to + 1;
+        }
+        return true;
+    }
+
+    @NonNull
+    static String[] format(@NonNull Object numbers) {
+        String[] result;
+        if (numbers instanceof int[]) {
+            int[] values = (int[]) numbers;
+            result = new String[values.length];
+            for (int c = 0; c < values.length; c++) {
+                result[c] = String.valueOf(values[c]);
+            }
+        } else if (numbers instanceof long[]) {
+            long[] values = (long[]) numbers;
+            result = new String[values.length];
+            for (int c = 0; c < values.length; c++) {
+                result[c] = String.valueOf(values[c]);
+            }
+        } else {
+            double[] values = (double[]) numbers;
+            result = new String[values.length];
+            for (int c = 0; c < values.length; c++) {
+                result[c] = String.valueOf(values[c]);
+            }
+        }
+        return result;
+    }
+
+    static int length(@NonNull Object numbers) {
+        if (numbers instanceof int[]) {
+            return ((int[]) numbers).length;
+        } else if (numbers instanceof long[]) {
+            return ((long[]) numbers).length;
+        }
+        return ((double[]) numbers).length;
+    }
+
+    /**
+     * Formats one item, so single value is read without formatting the whole array.
+     */
+    @NonNull
+    static String formatAt(@NonNull Object numbers, int index) {
+        if (numbers instanceof int[]) {
+            return String.valueOf(((int[]) numbers)[index]);
+        } else if (numbers instanceof long[]) {
+            return String.valueOf(((long[]) numbers)[index]);
+        }
+        return String.valueOf(((double[]) numbers)[index]);
+    }
+
+    private static boolean isBlank(String[] values) {
+        return values.length == 0 || (values.length == 1 && values[0].isEmpty());
+    }
+
+    /**
+     * Returns end of the items, excluding trailing empty ones, that are dropped by splitting,
+     * or -1 if value contains quotes or comments.
+     */
+    private static int plainEnd(String raw) {
+        int end = raw.length();
+        for (int c = 0; c < end; c++) {
+            char ch = raw.charAt(c);
+            if (ch == '"' || ch == IniParser.COMMENT_START_UNIX
+                    || ch == IniParser.COMMENT_START_WINDOWS || ch == '/') {
+                return -1;
+            }
+        }
+        while (end > 0 && raw.charAt(end - 1) == ARRAY_VALUE_DELIMITER) {
+            end--;
+        }
+        if (trimStart(raw, 0, end) == end) {
+            return 0;
+        }
+        return end;
+    }
+
+    private static int count(String raw, int end) {
+        if (end == 0) {
+            return 0;
+        }
+        int count = 1;
+        for (int c = 0; c < end; c++) {
+            if (raw.charAt(c) == ARRAY_VALUE_DELIMITER) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int tokenEnd(String raw, int from, int end) {
+        int index = raw.indexOf(ARRAY_VALUE_DELIMITER, from);
+        return index == -1 || index > end ? end : index;
+    }
+
+    private static long parseLong(String raw, int from, int to) {
+        int start = trimStart(raw, from, to);
+        int end = trimEnd(raw, start, to);
+        if (start == end) {
+            throw new NumberFormatException("Empty value in: " + raw);
+        }
+        int index = start;
+        char first = raw.charAt(index);
+        boolean negative = first == '-';
+        if (negative || first == '+') {
+            if (++index == end) {
+                throw new NumberFormatException("For input string: " + raw.substring(start, end));
+            }
+        }
+        // Accumulated negatively, as there is no positive counterpart of Long.MIN_VALUE.
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        while (index < end) {
+            int digit = raw.charAt(index++) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw new NumberFormatException("For input string: " + raw.substring(start, end));
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("For input string: " + raw.substring(start, end));
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static int trimStart(String raw, int start, int end) {
+        while (start < end && raw.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String raw, int start, int end) {
+        while (end > start && raw.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads entries of {@link java.util.Properties} text one by one,
+ * following the rules of {@link java.util.Properties#load(Reader)}.
+ */
+class PropertiesReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder token = new StringBuilder();
+    private String key;
+    private String value;
+
+    PropertiesReader(@NonNull Reader reader) {
+        this.reader = new BufferedReader(reader);
+    }
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return false, if there are no more entries.
+     */
+    boolean next() throws IOException {
+        if (!readLogicalLine()) {
+            return false;
+        }
+        int length = line.length();
+        int index = 0;
+        boolean escaped = false;
+        while (index < length) {
+            char c = line.charAt(index);
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '=' || c == ':' || isWhitespace(c)) {
+                break;
+            }
+            index++;
+        }
+        key = unescape(0, index);
+        while (index < length && isWhitespace(line.charAt(index))) {
+            index++;
+        }
+        if (index < length && (line.charAt(index) == '=' || line.charAt(index) == ':')) {
+            index++;
+            while (index < length && isWhitespace(line.charAt(index))) {
+                index++;
+            }
+        }
+        value = unescape(index, length);
+        return true;
+    }
+
+    @NonNull
+    String getKey() {
+        return key;
+    }
+
+    @NonNull
+    String getValue() {
+        return value;
+    }
+
+    /**
+     * Reads next line, that is not blank or comment, joining continuation lines.
+     */
+    private boolean readLogicalLine() throws IOException {
+        line.setLength(0);
+        String physical;
+        boolean continuation = false;
+        while ((physical = reader.readLine()) != null) {
+            int start = 0;
+            while (start < physical.length() && isWhitespace(physical.charAt(start))) {
+                start++;
+            }
+            if (!continuation) {
+                if (start == physical.length()) {
+                    continue;
+                }
+                char first = physical.charAt(start);
+                if (first == '#' || first == '!') {
+                    continue;
+                }
+            }
+            int end = physical.length();
+            int slashes = 0;
+            while (end - slashes > start && physical.charAt(end - slashes - 1) == '\\') {
+                slashes++;
+            }
+            continuation = slashes % 2 == 1;
+            line.append(physical, start, continuation ? end - 1 : end);
+            if (!continuation) {
+                return true;
+            }
+        }
+        return line.length() > 0;
+    }
+
+    private String unescape(int start, int end) {
+        token.setLength(0);
+        for (int index = start; index < end; index++) {
+            char c = line.charAt(index);
+            if (c != '\\' || index + 1 == end) {
+                token.append(c);
+                continue;
+            }
+            c = line.charAt(++index);
+            switch (c) {
+                case 't':
+                    token.append('\t');
+                    break;
+                case 'n':
+                    token.append('\n');
+                    break;
+                case 'r':
+                    token.append('\r');
+                    break;
+                case 'f':
+                    token.append('\f');
+                    break;
+                case 'u':
+                    if (index + 4 < end) {
+                        try {
+                            token.append((char) Integer.parseInt(
+                                    line.substring(index + 1, index + 5), 16));
+                            index += 4;
+                            break;
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                    token.append(c);
+                    break;
+                default:
+                    token.append(c);
+                    break;
+            }
+        }
+        return token.toString();
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Approximate retained heap size of the groups and records.
+ * Estimations assume compressed references and 16 bit chars.
+ */
+class SizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int ARRAY_HEADER = 16;
+    private static final int STRING = 24;
+    private static final int RECORD = OBJECT_HEADER + 3 * REFERENCE;
+    private static final int GROUP = OBJECT_HEADER + 3 * REFERENCE + 8;
+    /**
+     * Minion fields with its trackers and locks.
+     */
+    private static final int MINION = OBJECT_HEADER + 24 * REFERENCE + 64;
+    /**
+     * Compact map with headers of key and value arrays.
+     */
+    private static final int MAP = OBJECT_HEADER + 3 * REFERENCE + 4 + 2 * ARRAY_HEADER;
+    /**
+     * Key and value references and amortized slots of the array growth and hash table.
+     */
+    private static final int MAP_ENTRY = 4 * REFERENCE;
+
+    private SizeEstimator() {
+    }
+
+    static long stringSize(@NonNull String string) {
+        return STRING + align(ARRAY_HEADER + 2L * string.length());
+    }
+
+    static long valuesSize(@NonNull String[] values) {
+        long size = align(ARRAY_HEADER + (long) REFERENCE * values.length);
+        for (String value : values) {
+            size += stringSize(value);
+        }
+        return size;
+    }
+
+    static long numbersSize(int count, int itemSize) {
+        return align(ARRAY_HEADER + (long) itemSize * count);
+    }
+
+    /**
+     * Size of the value, that is not split yet.
+     */
+    static long rawValueSize(@NonNull String rawValue) {
+        return stringSize(rawValue);
+    }
+
+    /**
+     * Size of the record with key and value, including entry of the records map.
+     */
+    static long recordSize(@NonNull IniRecord record) {
+        return RECORD + MAP_ENTRY + stringSize(record.getKey()) + record.getValueSize();
+    }
+
+    /**
+     * Size of the empty group, including entry of the groups map.
+     */
+    static long groupSize(@NonNull String name) {
+        return GROUP + MAP + MAP_ENTRY + stringSize(name);
+    }
+
+    /**
+     * Size of the empty Minion.
+     */
+    static long minionSize() {
+        return MINION + MAP;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+}
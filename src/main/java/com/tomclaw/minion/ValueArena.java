@@ -0,0 +1,285 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Off-heap storage of record values, encoded as UTF-8 in direct byte buffers.
+ * Every stored value is addressed by compact int handle, and strings are created
+ * only on {@link #get(int)}. Recently materialized values are kept in a small cache.
+ * <p>
+ * Values are placed into blocks, rounded up to the power of two, and freed blocks are reused
+ * by values of the same size class. Values, larger than chunk, get dedicated chunk,
+ * that is released on free. Handle must not be used after it is freed, so owner of the handle
+ * reads and frees it holding the same lock.
+ */
+class ValueArena {
+
+    static final int DEFAULT_CACHE_SIZE = 64;
+
+    private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
+    private static final String[] EMPTY = new String[0];
+
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << (31 - CHUNK_BITS);
+    private static final int MIN_BLOCK_BITS = 4;
+
+    /**
+     * Chunks are replaced with extended copy on growth, so readers are never locked.
+     */
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private ByteBuffer current;
+    private int currentIndex;
+    /**
+     * Handles of the free blocks by power of two of the block size.
+     */
+    private final IntStack[] freeBlocks = new IntStack[CHUNK_BITS + 1];
+    /**
+     * Indexes of the released dedicated chunks, that may be taken again.
+     */
+    private final IntStack freeChunks = new IntStack();
+    private long size;
+
+    private final Map<Integer, String[]> cache;
+
+    ValueArena(final int cacheSize) {
+        this.cache = new LinkedHashMap<Integer, String[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        for (int c = MIN_BLOCK_BITS; c < freeBlocks.length; c++) {
+            freeBlocks[c] = new IntStack();
+        }
+    }
+
+    /**
+     * Stores values and returns handle to read them.
+     */
+    synchronized int put(@NonNull String[] values) {
+        byte[][] encoded = new byte[values.length][];
+        int length = varIntSize(values.length);
+        for (int c = 0; c < values.length; c++) {
+            encoded[c] = values[c].getBytes(UTF8_CHARSET);
+            length += varIntSize(encoded[c].length) + encoded[c].length;
+        }
+        int handle = allocate(length);
+        ByteBuffer chunk = chunks[handle >>> CHUNK_BITS].duplicate();
+        chunk.position(handle & (CHUNK_SIZE - 1));
+        writeVarInt(chunk, values.length);
+        for (byte[] value : encoded) {
+            writeVarInt(chunk, value.length);
+            chunk.put(value);
+        }
+        return handle;
+    }
+
+    /**
+     * Releases block of the handle to be reused by subsequent values.
+     */
+    synchronized void free(int handle) {
+        synchronized (cache) {
+            cache.remove(handle);
+        }
+        int index = handle >>> CHUNK_BITS;
+        ByteBuffer chunk = chunks[index];
+        int length = encodedLength(chunk, handle & (CHUNK_SIZE - 1));
+        int bits = blockBits(length);
+        if (bits > CHUNK_BITS) {
+            ByteBuffer[] chunks = this.chunks.clone();
+            chunks[index] = null;
+            this.chunks = chunks;
+            freeChunks.push(index);
+            size -= chunk.capacity();
+        } else {
+            freeBlocks[bits].push(handle);
+            size -= 1 << bits;
+        }
+    }
+
+    @NonNull
+    String[] get(int handle) {
+        synchronized (cache) {
+            String[] values = cache.get(handle);
+            if (values != null) {
+                return values;
+            }
+        }
+        String[] values = decode(handle);
+        synchronized (cache) {
+            cache.put(handle, values);
+        }
+        return values;
+    }
+
+    /**
+     * Returns count of bytes, occupied by blocks of the stored values.
+     */
+    synchronized long getSize() {
+        return size;
+    }
+
+    private String[] decode(int handle) {
+        ByteBuffer chunk = chunks[handle >>> CHUNK_BITS];
+        int position = handle & (CHUNK_SIZE - 1);
+        int count = readVarInt(chunk, position);
+        position += varIntSize(count);
+        if (count == 0) {
+            return EMPTY;
+        }
+        String[] values = new String[count];
+        for (int c = 0; c < count; c++) {
+            int length = readVarInt(chunk, position);
+            position += varIntSize(length);
+            values[c] = decodeString(chunk, position, length);
+            position += length;
+        }
+        return values;
+    }
+
+    private static int encodedLength(ByteBuffer chunk, int start) {
+        int position = start;
+        int count = readVarInt(chunk, position);
+        position += varIntSize(count);
+        for (int c = 0; c < count; c++) {
+            int length = readVarInt(chunk, position);
+            position += varIntSize(length) + length;
+        }
+        return position - start;
+    }
+
+    private static String decodeString(ByteBuffer chunk, int position, int length) {
+        char[] chars = new char[length];
+        for (int c = 0; c < length; c++) {
+            byte b = chunk.get(position + c);
+            if (b < 0) {
+                byte[] bytes = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = chunk.get(position + i);
+                }
+                return new String(bytes, UTF8_CHARSET);
+            }
+            // ASCII fast path.
+            chars[c] = (char) b;
+        }
+        return new String(chars);
+    }
+
+    private int allocate(int length) {
+        int bits = blockBits(length);
+        if (bits > CHUNK_BITS) {
+            // Values larger than chunk are placed into dedicated chunk.
+            ByteBuffer chunk = ByteBuffer.allocateDirect(length);
+            size += length;
+            return addChunk(chunk) << CHUNK_BITS;
+        }
+        int block = 1 << bits;
+        size += block;
+        IntStack free = freeBlocks[bits];
+        if (!free.isEmpty()) {
+            return free.pop();
+        }
+        if (current == null || current.remaining() < block) {
+            if (current != null) {
+                releaseTail();
+            }
+            current = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            currentIndex = addChunk(current);
+        }
+        int handle = (currentIndex << CHUNK_BITS) | current.position();
+        current.position(current.position() + block);
+        return handle;
+    }
+
+    /**
+     * Splits remaining space of the current chunk into free blocks.
+     */
+    private void releaseTail() {
+        while (current.remaining() >= 1 << MIN_BLOCK_BITS) {
+            int bits = 31 - Integer.numberOfLeadingZeros(current.remaining());
+            freeBlocks[bits].push((currentIndex << CHUNK_BITS) | current.position());
+            current.position(current.position() + (1 << bits));
+        }
+    }
+
+    private int addChunk(ByteBuffer chunk) {
+        ByteBuffer[] chunks;
+        int index;
+        if (!freeChunks.isEmpty()) {
+            index = freeChunks.pop();
+            chunks = this.chunks.clone();
+        } else {
+            if (this.chunks.length == MAX_CHUNKS) {
+                throw new IllegalStateException("Value arena is full");
+            }
+            index = this.chunks.length;
+            chunks = Arrays.copyOf(this.chunks, index + 1);
+        }
+        chunks[index] = chunk;
+        this.chunks = chunks;
+        return index;
+    }
+
+    private static int blockBits(int length) {
+        return Math.max(MIN_BLOCK_BITS, 32 - Integer.numberOfLeadingZeros(length - 1));
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer, int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static class IntStack {
+
+        private int[] items = new int[8];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.tomclaw.minion;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reverse index from record key and value to the records, holding this value.
+ * Updated incrementally on mutations, rebuilt lazily on first query after load.
+ * Index is guarded by the lock of the groups, that is already held on mutation,
+ * so queries and mutations never wait for each other in opposite order.
+ */
+class ValueIndex implements MutationListener {
+
+    @Nullable
+    private final Set<String> keys;
+    @NonNull
+    private final Object lock;
+    private final Map<String, Map<String, Set<IniRecord>>> index = new HashMap<>();
+    private boolean valid = true;
+
+    /**
+     * @param keys keys to be indexed or null to index records with any key.
+     * @param lock lock of the groups, that is held while groups and records are changed.
+     */
+    ValueIndex(@Nullable Set<String> keys, @NonNull Object lock) {
+        this.keys = keys;
+        this.lock = lock;
+    }
+
+    void invalidate() {
+        synchronized (lock) {
+            index.clear();
+            valid = false;
+        }
+    }
+
+    private boolean isIndexed(@NonNull String key) {
+        return keys == null || keys.contains(key);
+    }
+
+    @NonNull
+    Set<String> findGroups(@NonNull Collection<IniGroup> groups,
+                           @NonNull String key, @NonNull String value) {
+        synchronized (lock) {
+            Set<IniRecord> records = lookup(groups, key, value);
+            if (records.isEmpty()) {
+                return Collections.emptySet();
+            }
+            Set<String> names = new LinkedHashSet<>();
+            for (IniRecord record : records) {
+                IniGroup group = record.getGroup();
+                if (group != null) {
+                    names.add(group.getName());
+                }
+            }
+            return Collections.unmodifiableSet(names);
+        }
+    }
+
+    @NonNull
+    Collection<IniRecord> findRecords(@NonNull Collection<IniGroup> groups,
+                                      @NonNull String key, @NonNull String value) {
+        synchronized (lock) {
+            Set<IniRecord> records = lookup(groups, key, value);
+            if (records.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableCollection(new ArrayList<>(records));
+        }
+    }
+
+    @NonNull
+    private Set<IniRecord> lookup(Collection<IniGroup> groups, String key, String value) {
+        if (!valid) {
+            rebuild(groups);
+        }
+        Map<String, Set<IniRecord>> values = index.get(key);
+        if (values == null) {
+            return Collections.emptySet();
+        }
+        Set<IniRecord> records = values.get(value);
+        if (records == null) {
+            return Collections.emptySet();
+        }
+        return records;
+    }
+
+    private void rebuild(Collection<IniGroup> groups) {
+        index.clear();
+        for (IniGroup group : groups) {
+            for (IniRecord record : group.getRecords()) {
+                add(record, record.getValues());
+            }
+        }
+        valid = true;
+    }
+
+    @Override
+    public void onGroupAdded(@NonNull IniGroup group) {
+        synchronized (lock) {
+            if (valid) {
+                for (IniRecord record : group.getRecords()) {
+                    add(record, record.getValues());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onGroupRemoved(@NonNull IniGroup group) {
+        synchronized (lock) {
+            if (valid) {
+                for (IniRecord record : group.getRecords()) {
+                    remove(record, record.getValues());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onRecordAdded(@NonNull IniGroup group, @NonNull IniRecord record) {
+        synchronized (lock) {
+            if (valid) {
+                add(record, record.getValues());
+            }
+        }
+    }
+
+    @Override
+    public void onRecordRemoved(@NonNull IniGroup group, @NonNull IniRecord record) {
+        synchronized (lock) {
+            if (valid) {
+                remove(record, record.getValues());
+            }
+        }
+    }
+
+    @Override
+    public void onValueChanged(@NonNull IniGroup group, @NonNull IniRecord record,
+                               @Nullable String[] oldValue) {
+        synchronized (lock) {
+            // Value of the record, that is not indexed, is not even formatted.
+            if (valid && isIndexed(record.getKey())) {
+                if (oldValue != null) {
+                    remove(record, oldValue);
+                }
+                add(record, record.getValues());
+            }
+        }
+    }
+
+    @Override
+    public boolean isOldValueRequired(@NonNull IniRecord record) {
+        return isIndexed(record.getKey());
+    }
+
+    @Override
+    public void onSizeChanged(@NonNull IniGroup group, long delta) {
+    }
+
+    @Override
+    public void onCleared() {
+        synchronized (lock) {
+            index.clear();
+            valid = true;
+        }
+    }
+
+    @Override
+    public void onLockReleased() {
+    }
+
+    private void add(IniRecord record, String[] value) {
+        String key = record.getKey();
+        if (!isIndexed(key)) {
+            return;
+        }
+        Map<String, Set<IniRecord>> values = index.get(key);
+        if (values == null) {
+            values = new HashMap<>();
+            index.put(key, values);
+        }
+        for (String item : value) {
+            Set<IniRecord> records = values.get(item);
+            if (records == null) {
+                // Records are compared by content, so identity is required to tell them apart.
+                records = Collections.newSetFromMap(new IdentityHashMap<IniRecord, Boolean>());
+                values.put(item, records);
+            }
+            records.add(record);
+        }
+    }
+
+    private void remove(IniRecord record, String[] value) {
+        String key = record.getKey();
+        Map<String, Set<IniRecord>> values = index.get(key);
+        if (values == null) {
+            return;
+        }
+        for (String item : value) {
+            Set<IniRecord> records = values.get(item);
+            if (records != null && records.remove(record) && records.isEmpty()) {
+                values.remove(item);
+            }
+        }
+        if (values.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+}
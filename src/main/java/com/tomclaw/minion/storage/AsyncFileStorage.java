@@ -0,0 +1,179 @@
+package com.tomclaw.minion.storage;
+
+import static com.tomclaw.minion.StreamHelper.safeClose;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * File storage, that reads and writes data through {@link AsynchronousFileChannel}
+ * with positional operations, so no thread is blocked while I/O is in progress.
+ * Blocking streams of {@link FileStorage} are still available.
+ */
+@RequiresApi(26)
+@SuppressWarnings("WeakerAccess")
+public class AsyncFileStorage extends FileStorage implements AsyncReadable, AsyncWritable {
+
+    private static final Set<StandardOpenOption> READ_OPTIONS = EnumSet.of(
+            StandardOpenOption.READ);
+    private static final Set<StandardOpenOption> WRITE_OPTIONS = EnumSet.of(
+            StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+
+    @Nullable
+    private final ExecutorService executor;
+
+    public AsyncFileStorage(File file) {
+        this(file, false, null);
+    }
+
+    /**
+     * @param hashContent include checksum of the file content into fingerprint.
+     * @param executor    pool, that handles completions, or null for the default pool.
+     */
+    public AsyncFileStorage(File file, boolean hashContent, @Nullable ExecutorService executor) {
+        super(file, hashContent);
+        this.executor = executor;
+    }
+
+    @Override
+    public void readAsync(@NonNull final CompletionCallback<ByteBuffer> callback) {
+        AsynchronousFileChannel opened = null;
+        final ByteBuffer buffer;
+        try {
+            opened = open(READ_OPTIONS);
+            long size = opened.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large: " + size);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+        } catch (IOException | RuntimeException ex) {
+            safeClose(opened);
+            callback.onFailure(ex);
+            return;
+        }
+        final AsynchronousFileChannel channel = opened;
+        if (!buffer.hasRemaining()) {
+            complete(channel, buffer, callback);
+            return;
+        }
+        CompletionHandler<Integer, Void> handler = new CompletionHandler<Integer, Void>() {
+
+            private long position;
+
+            @Override
+            public void completed(Integer read, Void attachment) {
+                if (read == -1 || !buffer.hasRemaining()) {
+                    buffer.flip();
+                    complete(channel, buffer, callback);
+                    return;
+                }
+                position += read;
+                try {
+                    channel.read(buffer, position, null, this);
+                } catch (RuntimeException ex) {
+                    fail(channel, ex, callback);
+                }
+            }
+
+            @Override
+            public void failed(Throwable ex, Void attachment) {
+                fail(channel, ex, callback);
+            }
+        };
+        try {
+            channel.read(buffer, 0, null, handler);
+        } catch (RuntimeException ex) {
+            fail(channel, ex, callback);
+        }
+    }
+
+    @Override
+    public void writeAsync(@NonNull final ByteBuffer data,
+                           @NonNull final CompletionCallback<Void> callback) {
+        final AsynchronousFileChannel channel;
+        try {
+            channel = open(WRITE_OPTIONS);
+        } catch (IOException | RuntimeException ex) {
+            callback.onFailure(ex);
+            return;
+        }
+        if (!data.hasRemaining()) {
+            complete(channel, null, callback);
+            return;
+        }
+        CompletionHandler<Integer, Void> handler = new CompletionHandler<Integer, Void>() {
+
+            private long position;
+
+            @Override
+            public void completed(Integer written, Void attachment) {
+                position += written;
+                if (!data.hasRemaining()) {
+                    complete(channel, null, callback);
+                    return;
+                }
+                try {
+                    channel.write(data, position, null, this);
+                } catch (RuntimeException ex) {
+                    fail(channel, ex, callback);
+                }
+            }
+
+            @Override
+            public void failed(Throwable ex, Void attachment) {
+                fail(channel, ex, callback);
+            }
+        };
+        try {
+            channel.write(data, 0, null, handler);
+        } catch (RuntimeException ex) {
+            // Operation may be rejected without calling the handler, e.g. by shut down executor.
+            fail(channel, ex, callback);
+        }
+    }
+
+    private AsynchronousFileChannel open(Set<? extends OpenOption> options) throws IOException {
+        return AsynchronousFileChannel.open(getFile().toPath(), options, executor);
+    }
+
+    private static <T> void complete(AsynchronousFileChannel channel, T result,
+                                     CompletionCallback<T> callback) {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            callback.onFailure(ex);
+            return;
+        }
+        callback.onComplete(result);
+    }
+
+    private static void fail(AsynchronousFileChannel channel, Throwable ex,
+                             CompletionCallback<?> callback) {
+        safeClose(channel);
+        callback.onFailure(ex instanceof Exception ? (Exception) ex : new IOException(ex));
+    }
+
+    public static AsyncFileStorage create(File file) {
+        return new AsyncFileStorage(file);
+    }
+
+    public static AsyncFileStorage create(File file, boolean hashContent,
+                                          @Nullable ExecutorService executor) {
+        return new AsyncFileStorage(file, hashContent, executor);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.tomclaw.minion.storage;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Readable, that can read its data without blocking the calling thread.
+ */
+public interface AsyncReadable extends Readable {
+
+    /**
+     * Reads whole data into the buffer, that is passed to callback ready for reading.
+     */
+    void readAsync(@NonNull CompletionCallback<ByteBuffer> callback);
+
+}
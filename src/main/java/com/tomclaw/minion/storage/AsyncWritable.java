@@ -0,0 +1,17 @@
+package com.tomclaw.minion.storage;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writable, that can replace its data without blocking the calling thread.
+ */
+public interface AsyncWritable extends Writable {
+
+    /**
+     * Replaces data with remaining bytes of the buffer.
+     */
+    void writeAsync(@NonNull ByteBuffer data, @NonNull CompletionCallback<Void> callback);
+
+}
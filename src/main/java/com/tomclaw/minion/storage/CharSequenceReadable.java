@@ -0,0 +1,16 @@
+package com.tomclaw.minion.storage;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Readable, that holds already decoded data. Minion parses its characters directly,
+ * without encoding them into bytes and decoding back.
+ */
+public interface CharSequenceReadable extends Readable {
+
+    @NonNull
+    CharSequence readChars() throws IOException;
+
+}
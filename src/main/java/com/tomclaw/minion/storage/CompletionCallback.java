@@ -0,0 +1,15 @@
+package com.tomclaw.minion.storage;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives result of the asynchronous storage operation.
+ * Methods may be called on any thread.
+ */
+public interface CompletionCallback<T> {
+
+    void onComplete(T result);
+
+    void onFailure(@NonNull Exception ex);
+
+}
@@ -0,0 +1,161 @@
+package com.tomclaw.minion.storage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decorator, that transparently compresses data written to the wrapped {@link Writable}
+ * and decompresses data read from the wrapped {@link Readable}.
+ * Streams are processed with bounded buffers, so the whole content is never held in memory.
+ */
+@SuppressWarnings("WeakerAccess")
+public class CompressedStorage implements Readable, Writable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    public enum Format {
+        DEFLATE,
+        GZIP
+    }
+
+    @Nullable
+    private final Readable readable;
+    @Nullable
+    private final Writable writable;
+    @NonNull
+    private final Format format;
+    private final int level;
+    private final int bufferSize;
+
+    private CompressedStorage(@Nullable Readable readable, @Nullable Writable writable,
+                              @NonNull Format format, int level, int bufferSize) {
+        if (level != Deflater.DEFAULT_COMPRESSION
+                && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+        this.readable = readable;
+        this.writable = writable;
+        this.format = format;
+        this.level = level;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public InputStream read() throws IOException {
+        if (readable == null) {
+            throw new IOException("Storage is not readable");
+        }
+        InputStream inputStream = readable.read();
+        switch (format) {
+            case GZIP:
+                return new GZIPInputStream(inputStream, bufferSize);
+            default:
+                return new InflatingInputStream(inputStream, bufferSize);
+        }
+    }
+
+    @Override
+    public OutputStream write() throws IOException {
+        if (writable == null) {
+            throw new IOException("Storage is not writable");
+        }
+        OutputStream outputStream = writable.write();
+        switch (format) {
+            case GZIP:
+                return new LeveledGZIPOutputStream(outputStream, level, bufferSize);
+            default:
+                return new DeflatingOutputStream(outputStream, level, bufferSize);
+        }
+    }
+
+    @NonNull
+    public Format getFormat() {
+        return format;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public static <S extends Readable & Writable> CompressedStorage create(@NonNull S storage) {
+        return create(storage, Format.DEFLATE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public static <S extends Readable & Writable> CompressedStorage create(
+            @NonNull S storage, @NonNull Format format, int level) {
+        return create(storage, storage, format, level, DEFAULT_BUFFER_SIZE);
+    }
+
+    public static CompressedStorage create(@Nullable Readable readable, @Nullable Writable writable,
+                                           @NonNull Format format, int level, int bufferSize) {
+        return new CompressedStorage(readable, writable, format, level, bufferSize);
+    }
+
+    /**
+     * Deflater stream, that owns its deflater and releases native memory on close.
+     */
+    private static class DeflatingOutputStream extends DeflaterOutputStream {
+
+        DeflatingOutputStream(OutputStream out, int level, int bufferSize) {
+            super(out, new Deflater(level), bufferSize);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                def.end();
+            }
+        }
+
+    }
+
+    private static class InflatingInputStream extends InflaterInputStream {
+
+        private boolean closed;
+
+        InflatingInputStream(InputStream in, int bufferSize) {
+            super(in, new Inflater(), bufferSize);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    inf.end();
+                }
+            }
+        }
+
+    }
+
+    /**
+     * GZIP stream doesn't expose compression level, so it's applied to inner deflater directly.
+     */
+    private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+
+        LeveledGZIPOutputStream(OutputStream out, int level, int bufferSize) throws IOException {
+            super(out, bufferSize);
+            def.setLevel(level);
+        }
+
+    }
+
+}
@@ -1,22 +1,38 @@
 package com.tomclaw.minion.storage;
 
+import static com.tomclaw.minion.StreamHelper.safeClose;
+
+import androidx.annotation.Nullable;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.zip.CRC32;
 
 /**
  * Created by solkin on 28.07.17.
  */
 @SuppressWarnings("WeakerAccess")
-public class FileStorage implements Readable, Writable {
+public class FileStorage implements Readable, Writable, Fingerprintable {
 
     private File file;
+    private boolean hashContent;
 
     public FileStorage(File file) {
+        this(file, false);
+    }
+
+    /**
+     * @param hashContent include checksum of the file content into fingerprint.
+     *                    It's slower, but detects changes within timestamp granularity.
+     */
+    public FileStorage(File file, boolean hashContent) {
         this.file = file;
+        this.hashContent = hashContent;
     }
 
     @Override
@@ -29,8 +45,46 @@ public class FileStorage implements Readable, Writable {
         return new FileOutputStream(file);
     }
 
+    @Nullable
+    @Override
+    public Fingerprint getFingerprint() throws IOException {
+        long modified = file.lastModified();
+        if (modified == 0 && !file.exists()) {
+            return null;
+        }
+        long size = file.length();
+        if (hashContent) {
+            return new Fingerprint(modified, size, checksum());
+        }
+        return new Fingerprint(modified, size);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private long checksum() throws IOException {
+        CRC32 crc = new CRC32();
+        InputStream input = null;
+        try {
+            input = read();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } finally {
+            safeClose(input);
+        }
+        return crc.getValue();
+    }
+
     public static FileStorage create(File file) {
         return new FileStorage(file);
     }
 
+    public static FileStorage create(File file, boolean hashContent) {
+        return new FileStorage(file, hashContent);
+    }
+
 }
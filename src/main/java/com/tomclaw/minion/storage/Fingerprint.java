@@ -0,0 +1,58 @@
+package com.tomclaw.minion.storage;
+
+/**
+ * Cheap identity of the stored data state, used to detect changes without reading the data.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class Fingerprint {
+
+    public static final long NO_HASH = 0;
+
+    private final long modified;
+    private final long size;
+    private final long hash;
+
+    public Fingerprint(long modified, long size) {
+        this(modified, size, NO_HASH);
+    }
+
+    public Fingerprint(long modified, long size, long hash) {
+        this.modified = modified;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Fingerprint that = (Fingerprint) o;
+        return modified == that.modified && size == that.size && hash == that.hash;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (modified ^ (modified >>> 32));
+        result = 31 * result + (int) (size ^ (size >>> 32));
+        result = 31 * result + (int) (hash ^ (hash >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Fingerprint{modified=" + modified + ", size=" + size + ", hash=" + hash + '}';
+    }
+
+}
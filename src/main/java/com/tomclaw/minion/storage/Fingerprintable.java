@@ -0,0 +1,18 @@
+package com.tomclaw.minion.storage;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Storage, that can tell whether its data was changed.
+ */
+public interface Fingerprintable {
+
+    /**
+     * @return fingerprint of the current data or null, if there is no data.
+     */
+    @Nullable
+    Fingerprint getFingerprint() throws IOException;
+
+}
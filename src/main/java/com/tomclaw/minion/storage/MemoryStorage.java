@@ -1,35 +1,112 @@
 package com.tomclaw.minion.storage;
 
+import androidx.annotation.NonNull;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Created by solkin on 28.07.17.
  */
 public class MemoryStorage implements Readable, Writable {
 
-    private ByteArrayOutputStream stream;
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * Content of the last closed write. Buffer is never modified after publication,
+     * so it's shared by reads without copying.
+     */
+    private volatile Content content = new Content(EMPTY, 0);
 
     private MemoryStorage() {
-        stream = new ByteArrayOutputStream();
     }
 
     @Override
     public InputStream read() {
-        return new ByteArrayInputStream(stream.toByteArray());
+        Content content = this.content;
+        return new ByteArrayInputStream(content.buffer, 0, content.count);
+    }
+
+    /**
+     * Returns read-only view of the stored data without copying.
+     */
+    @NonNull
+    public ByteBuffer getBuffer() {
+        Content content = this.content;
+        return ByteBuffer.wrap(content.buffer, 0, content.count).asReadOnlyBuffer();
     }
 
+    /**
+     * Returns stream, which data replaces stored one when stream is closed.
+     */
     @Override
     public OutputStream write() throws IOException {
-        stream.reset();
-        return stream;
+        return new ContentOutputStream();
     }
 
     public static MemoryStorage create() {
         return new MemoryStorage();
     }
 
+    private static class Content {
+
+        final byte[] buffer;
+        final int count;
+
+        Content(byte[] buffer, int count) {
+            this.buffer = buffer;
+            this.count = count;
+        }
+
+    }
+
+    /**
+     * Stream, that hands its buffer over to the storage on close without copying,
+     * so it rejects writes after close, as they would modify published data.
+     */
+    private class ContentOutputStream extends OutputStream {
+
+        private final ContentBuffer buffer = new ContentBuffer();
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            buffer.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                content = new Content(buffer.getBuffer(), buffer.size());
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+        }
+
+    }
+
+    private static class ContentBuffer extends ByteArrayOutputStream {
+
+        byte[] getBuffer() {
+            return buf;
+        }
+
+    }
+
 }
@@ -1,5 +1,7 @@
 package com.tomclaw.minion.storage;
 
+import androidx.annotation.NonNull;
+
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.Charset;
@@ -7,23 +9,37 @@ import java.nio.charset.Charset;
 /**
  * Created by solkin on 28.07.17.
  */
-public class StringStorage implements Readable {
+public class StringStorage implements CharSequenceReadable {
 
     private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
 
-    private String string;
+    private CharSequence string;
 
-    private StringStorage(String string) {
+    private StringStorage(CharSequence string) {
         this.string = string;
     }
 
     @Override
     public InputStream read() {
-        return new ByteArrayInputStream(string.getBytes(UTF8_CHARSET));
+        return new ByteArrayInputStream(string.toString().getBytes(UTF8_CHARSET));
+    }
+
+    @NonNull
+    @Override
+    public CharSequence readChars() {
+        return string;
     }
 
     public static StringStorage create(String string) {
         return new StringStorage(string);
     }
 
+    /**
+     * Creates storage over characters, like {@link java.nio.CharBuffer}, without copying them.
+     * Characters must not be changed while Minion is loading.
+     */
+    public static StringStorage create(CharSequence chars) {
+        return new StringStorage(chars);
+    }
+
 }
@@ -0,0 +1,180 @@
+package com.tomclaw.minion;
+
+import static com.tomclaw.minion.StreamHelper.safeClose;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Measures bytes allocated per operation by the current thread and fails,
+ * when median of several samples exceeds its budget from allocation-budgets.properties.
+ * Skipped on virtual machines, that don't report allocated bytes.
+ */
+public class AllocationBudgetUnitTest {
+
+    private static final int GROUPS_COUNT = 50;
+    private static final int RECORDS_COUNT = 10;
+    private static final int SAMPLES_COUNT = 5;
+    private static final String BUDGETS_RESOURCE = "allocation-budgets.properties";
+
+    private static com.sun.management.ThreadMXBean threadBean;
+    private static Properties budgets;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        budgets = new Properties();
+        InputStream input = AllocationBudgetUnitTest.class.getResourceAsStream(BUDGETS_RESOURCE);
+        assertNotNull("Missing " + BUDGETS_RESOURCE, input);
+        try {
+            budgets.load(input);
+        } finally {
+            safeClose(input);
+        }
+    }
+
+    @Test
+    public void load_fixture_withinBudget() throws Exception {
+        final MemoryStorage storage = MemoryStorage.create();
+        fill(Minion.lets().store(storage).sync()).store();
+
+        assertBudget("load", 20, 200, new Operation() {
+            @Override
+            public void run(int iteration) throws Exception {
+                Minion.lets().load(storage).sync();
+            }
+        });
+    }
+
+    @Test
+    public void store_fixture_withinBudget() throws Exception {
+        final Minion minion = fill(Minion.lets().store(MemoryStorage.create()).sync());
+
+        assertBudget("store", 20, 200, new Operation() {
+            @Override
+            public void run(int iteration) {
+                minion.store();
+            }
+        });
+    }
+
+    @Test
+    public void getValue_existingRecord_withinBudget() throws Exception {
+        final Minion minion = fill(Minion.lets().buildSimple());
+        final String[] names = groupNames();
+        final String[] keys = recordKeys();
+
+        assertBudget("get", 10000, 100000, new Operation() {
+            @Override
+            public void run(int iteration) {
+                minion.getValue(names[iteration % GROUPS_COUNT], keys[iteration % RECORDS_COUNT]);
+            }
+        });
+    }
+
+    @Test
+    public void getValue_numbersRecord_withinBudget() throws Exception {
+        final Minion minion = Minion.lets().buildSimple();
+        int[] ids = new int[1000];
+        for (int c = 0; c < ids.length; c++) {
+            ids[c] = c + 1;
+        }
+        minion.setIntArray("group", "ids", ids);
+
+        assertBudget("get-numbers", 10000, 100000, new Operation() {
+            @Override
+            public void run(int iteration) {
+                minion.getValue("group", "ids");
+            }
+        });
+    }
+
+    @Test
+    public void setValue_existingRecord_withinBudget() throws Exception {
+        final Minion minion = fill(Minion.lets().buildSimple());
+        final String[] names = groupNames();
+        final String[] keys = recordKeys();
+
+        assertBudget("set", 10000, 100000, new Operation() {
+            @Override
+            public void run(int iteration) {
+                minion.setValue(names[iteration % GROUPS_COUNT], keys[iteration % RECORDS_COUNT],
+                        "value", "enabled");
+            }
+        });
+    }
+
+    private static void assertBudget(String name, int warmUp, int iterations, Operation operation)
+            throws Exception {
+        for (int c = 0; c < warmUp; c++) {
+            operation.run(c);
+        }
+        long threadId = Thread.currentThread().getId();
+        // Median of several samples ignores one-off allocations of class loading or compilation.
+        long[] samples = new long[SAMPLES_COUNT];
+        for (int sample = 0; sample < samples.length; sample++) {
+            long start = threadBean.getThreadAllocatedBytes(threadId);
+            for (int c = 0; c < iterations; c++) {
+                operation.run(c);
+            }
+            samples[sample] = (threadBean.getThreadAllocatedBytes(threadId) - start) / iterations;
+        }
+        Arrays.sort(samples);
+        long allocated = samples[samples.length / 2];
+        long budget = Long.parseLong(budgets.getProperty(name));
+        assertTrue(String.format(Locale.US, "%s allocates %d bytes/op, budget is %d, samples %s",
+                name, allocated, budget, Arrays.toString(samples)), allocated <= budget);
+    }
+
+    private static Minion fill(Minion minion) {
+        String[] names = groupNames();
+        String[] keys = recordKeys();
+        for (String name : names) {
+            for (String key : keys) {
+                minion.setValue(name, key, "value_" + key, "enabled");
+            }
+        }
+        assertEquals(GROUPS_COUNT, minion.getGroupsCount());
+        return minion;
+    }
+
+    private static String[] groupNames() {
+        String[] names = new String[GROUPS_COUNT];
+        for (int c = 0; c < names.length; c++) {
+            names[c] = "group_" + c;
+        }
+        return names;
+    }
+
+    private static String[] recordKeys() {
+        String[] keys = new String[RECORDS_COUNT];
+        for (int c = 0; c < keys.length; c++) {
+            keys[c] = "key_" + c;
+        }
+        return keys;
+    }
+
+    private interface Operation {
+
+        void run(int iteration) throws Exception;
+
+    }
+
+}
@@ -0,0 +1,287 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.tomclaw.minion.storage.AsyncFileStorage;
+import com.tomclaw.minion.storage.CompletionCallback;
+import com.tomclaw.minion.storage.FileStorage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AsyncFileStorageUnitTest {
+
+    private final List<File> files = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        files.add(File.createTempFile("minion", ".ini"));
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void writeAsync_largeData_readAsyncReturnsSameBytes() throws Exception {
+        AsyncFileStorage storage = AsyncFileStorage.create(files.get(0));
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        new Random(1).nextBytes(data);
+
+        Recorder<Void> written = new Recorder<>();
+        storage.writeAsync(ByteBuffer.wrap(data), written);
+        written.await();
+        Recorder<ByteBuffer> read = new Recorder<>();
+        storage.readAsync(read);
+        ByteBuffer buffer = read.await();
+
+        assertEquals(data.length, buffer.remaining());
+        byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        assertArrayEquals(data, result);
+    }
+
+    @Test(timeout = 10000)
+    public void writeAsync_shorterData_truncatesFile() throws Exception {
+        AsyncFileStorage storage = AsyncFileStorage.create(files.get(0));
+        Recorder<Void> first = new Recorder<>();
+        storage.writeAsync(ByteBuffer.wrap(new byte[100]), first);
+        first.await();
+
+        Recorder<Void> second = new Recorder<>();
+        storage.writeAsync(ByteBuffer.wrap(new byte[10]), second);
+        second.await();
+
+        assertEquals(10, files.get(0).length());
+    }
+
+    @Test(timeout = 10000)
+    public void readAsync_noFile_reportsFailure() throws Exception {
+        files.get(0).delete();
+        Recorder<ByteBuffer> read = new Recorder<>();
+
+        AsyncFileStorage.create(files.get(0)).readAsync(read);
+
+        assertTrue(read.latch.await(5, TimeUnit.SECONDS));
+        assertNotNull(read.failure.get());
+    }
+
+    @Test(timeout = 30000)
+    public void store_manyMinions_allStoredAndReported() throws Exception {
+        int count = 32;
+        List<Minion> minions = new ArrayList<>();
+        for (int c = 0; c < count; c++) {
+            File file = File.createTempFile("minion", ".ini");
+            files.add(file);
+            minions.add(create(AsyncFileStorage.create(file)));
+        }
+        final CountDownLatch stored = new CountDownLatch(count);
+        final AtomicInteger failures = new AtomicInteger();
+        for (int c = 0; c < count; c++) {
+            Minion minion = minions.get(c);
+            minion.setValue("group", "key", "value_" + c);
+            minion.store(new ResultCallback() {
+                @Override
+                public void onReady(Minion minion) {
+                    stored.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception ex) {
+                    failures.incrementAndGet();
+                    stored.countDown();
+                }
+            });
+        }
+
+        assertTrue(stored.await(20, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        for (int c = 0; c < count; c++) {
+            Minion loaded = Minion.lets().load(FileStorage.create(files.get(c + 1))).sync();
+            assertEquals("value_" + c, loaded.getValue("group", "key"));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void store_repeatedStores_latestDataWrittenAndAllReported() throws Exception {
+        Minion minion = create(AsyncFileStorage.create(files.get(0)));
+        int count = 20;
+        final CountDownLatch stored = new CountDownLatch(count);
+        for (int c = 0; c < count; c++) {
+            minion.setValue("group", "key_" + c, "value");
+            minion.store(new ResultCallback() {
+                @Override
+                public void onReady(Minion minion) {
+                    stored.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception ex) {
+                }
+            });
+        }
+
+        assertTrue(stored.await(5, TimeUnit.SECONDS));
+        CountDownLatch refreshed = new CountDownLatch(1);
+        minion.refresh(new LatchCallback(refreshed));
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        Minion loaded = Minion.lets().load(FileStorage.create(files.get(0))).sync();
+        assertEquals(count, loaded.getGroup("group").getRecordsCount());
+    }
+
+    @Test(timeout = 10000)
+    public void refresh_afterStore_readsWrittenData() throws Exception {
+        AsyncFileStorage storage = AsyncFileStorage.create(files.get(0));
+        Minion minion = create(storage);
+        minion.setValue("group", "key", "value");
+        minion.store();
+        CountDownLatch refreshed = new CountDownLatch(1);
+
+        minion.refresh(new LatchCallback(refreshed));
+
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        assertEquals("value", minion.getValue("group", "key"));
+        assertEquals(minion.getValue("group", "key"),
+                Minion.lets().load(storage).sync().getValue("group", "key"));
+    }
+
+    @Test(timeout = 10000)
+    public void writeAsync_shutDownExecutor_reportsFailure() throws Exception {
+        Recorder<Void> prepared = new Recorder<>();
+        AsyncFileStorage.create(files.get(0)).writeAsync(ByteBuffer.wrap(new byte[10]), prepared);
+        prepared.await();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsyncFileStorage storage = AsyncFileStorage.create(files.get(0), false, executor);
+        executor.shutdown();
+
+        Recorder<ByteBuffer> read = new Recorder<>();
+        storage.readAsync(read);
+        Recorder<Void> written = new Recorder<>();
+        storage.writeAsync(ByteBuffer.wrap(new byte[10]), written);
+
+        assertTrue(read.latch.await(5, TimeUnit.SECONDS));
+        assertNotNull(read.failure.get());
+        assertTrue(written.latch.await(5, TimeUnit.SECONDS));
+        assertNotNull(written.failure.get());
+    }
+
+    @Test(timeout = 10000)
+    public void store_writeThrows_callbacksFailedAndRefreshNotBlocked() throws Exception {
+        final AsyncFileStorage file = AsyncFileStorage.create(files.get(0));
+        final AtomicInteger writes = new AtomicInteger();
+        AsyncFileStorage storage = new AsyncFileStorage(files.get(0)) {
+            @Override
+            public void writeAsync(ByteBuffer data, CompletionCallback<Void> callback) {
+                if (writes.incrementAndGet() == 1) {
+                    throw new IllegalStateException("Rejected");
+                }
+                file.writeAsync(data, callback);
+            }
+        };
+        Minion minion = create(storage);
+        minion.setValue("group", "key", "value");
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDownLatch stored = new CountDownLatch(1);
+
+        minion.store(new ResultCallback() {
+            @Override
+            public void onReady(Minion minion) {
+                stored.countDown();
+            }
+
+            @Override
+            public void onFailure(Exception ex) {
+                failure.set(ex);
+                stored.countDown();
+            }
+        });
+        assertTrue(stored.await(5, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof IllegalStateException);
+        CountDownLatch refreshed = new CountDownLatch(1);
+        minion.refresh(new LatchCallback(refreshed));
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch restored = new CountDownLatch(1);
+        minion.store(new LatchCallback(restored));
+        assertTrue(restored.await(5, TimeUnit.SECONDS));
+        assertEquals("value", Minion.lets().load(file).sync().getValue("group", "key"));
+    }
+
+    private static Minion create(AsyncFileStorage storage) throws Exception {
+        CountDownLatch loaded = new CountDownLatch(1);
+        Minion minion = Minion.lets()
+                .load(storage)
+                .and()
+                .store(storage)
+                .async(new LatchCallback(loaded));
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        return minion;
+    }
+
+    private static class Recorder<T> implements CompletionCallback<T> {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<T> result = new AtomicReference<>();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        @Override
+        public void onComplete(T result) {
+            this.result.set(result);
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception ex) {
+            failure.set(ex);
+            latch.countDown();
+        }
+
+        T await() throws Exception {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertNull(failure.get());
+            return result.get();
+        }
+
+    }
+
+    private static class LatchCallback implements ResultCallback {
+
+        private final CountDownLatch latch;
+
+        LatchCallback(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onReady(Minion minion) {
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception ex) {
+            latch.countDown();
+        }
+
+    }
+
+}
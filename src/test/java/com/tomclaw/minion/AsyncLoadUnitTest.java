@@ -0,0 +1,235 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.tomclaw.minion.storage.Readable;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AsyncLoadUnitTest {
+
+    private static final String DATA = "[group]\nkey=value";
+
+    @Test(timeout = 10000)
+    public void getValue_blockPolicy_waitsForLoad() throws Exception {
+        GatedReadable readable = new GatedReadable(DATA);
+        final Minion minion = createMinion(readable, Minion.ReadPolicy.BLOCK);
+        readable.started.await();
+        final AtomicReference<String> value = new AtomicReference<>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                value.set(minion.getValue("group", "key"));
+            }
+        });
+
+        reader.start();
+        reader.join(200);
+        assertTrue(reader.isAlive());
+        readable.release.countDown();
+        reader.join();
+
+        assertEquals("value", value.get());
+    }
+
+    @Test(timeout = 10000)
+    public void getValue_returnDefaultsPolicy_returnsDefaultWhileLoading() throws Exception {
+        GatedReadable readable = new GatedReadable(DATA);
+        Minion minion = createMinion(readable, Minion.ReadPolicy.RETURN_DEFAULTS);
+        readable.started.await();
+
+        assertEquals("default", minion.getValue("group", "key", "default"));
+        assertNull(minion.getGroup("group"));
+        assertEquals(0, minion.getGroupsCount());
+        assertFalse(minion.isLoaded());
+
+        readable.release.countDown();
+        assertTrue(minion.awaitLoaded(5, TimeUnit.SECONDS));
+
+        assertEquals("value", minion.getValue("group", "key", "default"));
+    }
+
+    @Test(timeout = 10000)
+    public void awaitLoaded_loadInProgress_returnsFalseOnTimeout() throws Exception {
+        GatedReadable readable = new GatedReadable(DATA);
+        Minion minion = createMinion(readable, Minion.ReadPolicy.BLOCK);
+
+        assertFalse(minion.awaitLoaded(50, TimeUnit.MILLISECONDS));
+
+        readable.release.countDown();
+        assertTrue(minion.awaitLoaded(5, TimeUnit.SECONDS));
+        assertTrue(minion.isLoaded());
+    }
+
+    @Test(timeout = 10000)
+    public void getLoadFuture_loaded_returnsMinion() throws Exception {
+        GatedReadable readable = new GatedReadable(DATA);
+        Minion minion = createMinion(readable, Minion.ReadPolicy.BLOCK);
+
+        try {
+            minion.getLoadFuture().get(50, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException ignored) {
+        }
+        readable.release.countDown();
+
+        assertSame(minion, minion.getLoadFuture().get());
+        assertTrue(minion.getLoadFuture().isDone());
+    }
+
+    @Test(timeout = 10000)
+    public void getLoadFuture_loadFailed_throwsExecutionException() throws Exception {
+        Minion minion = Minion.lets()
+                .load(new Readable() {
+                    @Override
+                    public InputStream read() throws IOException {
+                        throw new IOException("failed");
+                    }
+                })
+                .scheduler(new MinionScheduler(4, MinionScheduler.OverflowPolicy.BLOCK))
+                .async(new EmptyResultCallback());
+
+        try {
+            minion.getLoadFuture().get();
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+        assertNull(minion.getValue("group", "key"));
+    }
+
+    @Test(timeout = 10000)
+    public void onReady_callback_seesLoadedData() throws Exception {
+        final AtomicReference<String> value = new AtomicReference<>();
+        final CountDownLatch ready = new CountDownLatch(1);
+
+        Minion.lets()
+                .load(new GatedReadable(DATA).open())
+                .scheduler(new MinionScheduler(4, MinionScheduler.OverflowPolicy.BLOCK))
+                .async(new EmptyResultCallback() {
+                    @Override
+                    public void onReady(Minion minion) {
+                        value.set(minion.getValue("group", "key"));
+                        ready.countDown();
+                    }
+                });
+
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        assertEquals("value", value.get());
+    }
+
+    @Test(timeout = 10000)
+    public void setValue_duringLoad_notReplacedByLoadedData() throws Exception {
+        GatedReadable readable = new GatedReadable(DATA);
+        final Minion minion = createMinion(readable, Minion.ReadPolicy.RETURN_DEFAULTS);
+        readable.started.await();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                minion.getOrCreateGroup("group").getOrCreateRecord("key").setValue("changed");
+            }
+        });
+
+        writer.start();
+        writer.join(200);
+        assertTrue(writer.isAlive());
+        readable.release.countDown();
+        writer.join();
+
+        assertEquals("changed", minion.getValue("group", "key"));
+    }
+
+    @Test(timeout = 10000)
+    public void getValue_schedulerThreadWhileLoadQueued_failsFast() throws Exception {
+        MinionScheduler scheduler = new MinionScheduler(4, MinionScheduler.OverflowPolicy.BLOCK);
+        GatedReadable readable = new GatedReadable(DATA);
+        final AtomicReference<Minion> queued = new AtomicReference<>();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDownLatch ready = new CountDownLatch(1);
+        Minion.lets()
+                .load(readable)
+                .scheduler(scheduler)
+                .async(new EmptyResultCallback() {
+                    @Override
+                    public void onReady(Minion minion) {
+                        try {
+                            queued.get().getValue("group", "key");
+                        } catch (IllegalStateException ex) {
+                            failure.set(ex);
+                        }
+                        ready.countDown();
+                    }
+                });
+        readable.started.await();
+        queued.set(Minion.lets()
+                .load(new GatedReadable(DATA).open())
+                .scheduler(scheduler)
+                .async(new EmptyResultCallback()));
+
+        readable.release.countDown();
+
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof IllegalStateException);
+        assertTrue(queued.get().awaitLoaded(5, TimeUnit.SECONDS));
+        assertEquals("value", queued.get().getValue("group", "key"));
+    }
+
+    @Test
+    public void isLoaded_syncMinion_returnsTrue() throws Exception {
+        assertTrue(Minion.lets().sync().isLoaded());
+    }
+
+    private static Minion createMinion(Readable readable, Minion.ReadPolicy policy) {
+        return Minion.lets()
+                .load(readable)
+                .scheduler(new MinionScheduler(4, MinionScheduler.OverflowPolicy.BLOCK))
+                .readPolicy(policy)
+                .async(new EmptyResultCallback());
+    }
+
+    /**
+     * Readable, that returns data only when released.
+     */
+    private static class GatedReadable implements Readable {
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        private final String data;
+
+        GatedReadable(String data) {
+            this.data = data;
+        }
+
+        GatedReadable open() {
+            release.countDown();
+            return this;
+        }
+
+        @Override
+        public InputStream read() throws IOException {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            return new ByteArrayInputStream(data.getBytes("UTF-8"));
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BoundedMinionUnitTest {
+
+    @Test
+    public void maxGroups_exceeded_evictsLeastRecentlyAccessed() throws Exception {
+        final List<String> evicted = new ArrayList<>();
+        Minion minion = Minion.lets()
+                .maxGroups(2)
+                .and()
+                .onEvicted(new EvictionListener() {
+                    @Override
+                    public void onGroupEvicted(@NonNull Minion minion, @NonNull IniGroup group) {
+                        evicted.add(group.getName());
+                    }
+                })
+                .sync();
+        minion.setValue("first", "key", "1");
+        minion.setValue("second", "key", "2");
+
+        minion.getValue("first", "key");
+        minion.setValue("third", "key", "3");
+
+        assertTrue(minion.isBounded());
+        assertEquals(2, minion.getGroupsCount());
+        assertNull(minion.getGroup("second"));
+        assertNotNull(minion.getGroup("first"));
+        assertNotNull(minion.getGroup("third"));
+        assertArrayEquals(new String[]{"second"}, evicted.toArray());
+    }
+
+    @Test
+    public void handleGetValue_cachedRecord_groupNotEvicted() throws Exception {
+        Minion minion = Minion.lets()
+                .maxGroups(2)
+                .sync();
+        minion.setValue("first", "key", "1");
+        minion.setValue("second", "key", "2");
+        KeyHandle handle = minion.handle("first", "key");
+        assertEquals("1", handle.getValue());
+        minion.getValue("second", "key");
+
+        // Record is cached by handle, so it's read without lookup.
+        assertEquals("1", handle.getValue());
+        minion.setValue("third", "key", "3");
+
+        assertNotNull(minion.getGroup("first"));
+        assertNull(minion.getGroup("second"));
+    }
+
+    @Test
+    public void getValue_missingGroups_neitherCreatedNorEvicting() throws Exception {
+        Minion minion = Minion.lets()
+                .maxGroups(2)
+                .sync();
+        minion.setValue("a", "key", "1");
+        minion.setValue("b", "key", "2");
+
+        assertEquals("default", minion.getValue("missing1", "key", "default"));
+        assertNull(minion.getValues("missing2", "key"));
+        assertNull(minion.getIntArray("missing3", "key", null));
+
+        assertEquals(2, minion.getGroupsCount());
+        assertNull(minion.getGroup("missing1"));
+        assertEquals("1", minion.getValue("a", "key"));
+        assertEquals("2", minion.getValue("b", "key"));
+    }
+
+    @Test
+    public void maxSize_exceeded_evictsGroupsButRetainsCurrent() throws Exception {
+        Minion minion = Minion.lets()
+                .maxSize(1024)
+                .sync();
+
+        for (int c = 0; c < 100; c++) {
+            minion.setValue("group_" + c, "key", "value");
+        }
+        IniGroup last = minion.getOrCreateGroup("last");
+        for (int c = 0; c < 100; c++) {
+            last.getOrCreateRecord("key_" + c, "value");
+        }
+
+        assertEquals(1, minion.getGroupsCount());
+        assertEquals(100, minion.getGroup("last").getRecordsCount());
+    }
+
+    @Test
+    public void store_persistsRetainedGroupsOnly() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion minion = Minion.lets()
+                .store(storage)
+                .and()
+                .maxGroups(1)
+                .sync();
+        minion.setValue("first", "key", "1");
+        minion.setValue("second", "key", "2");
+
+        minion.store();
+
+        String data = new String(StreamHelper.readFully(storage), StandardCharsets.UTF_8);
+        assertEquals("[second]\nkey=2", data);
+    }
+
+    @Test
+    public void onEvicted_groupAdded_listenerNotHoldingLock() throws Exception {
+        final List<Boolean> accessed = new ArrayList<>();
+        Minion minion = Minion.lets()
+                .maxGroups(1)
+                .and()
+                .onEvicted(new EvictionListener() {
+                    @Override
+                    public void onGroupEvicted(@NonNull Minion minion, @NonNull IniGroup group) {
+                        accessed.add(accessFromOtherThread(minion));
+                    }
+                })
+                .sync();
+        minion.setValue("first", "key", "1");
+
+        minion.setValue("second", "key", "2");
+
+        assertArrayEquals(new Boolean[]{true}, accessed.toArray());
+    }
+
+    @Test
+    public void onEvicted_valueChanged_listenerNotHoldingLock() throws Exception {
+        final List<Boolean> accessed = new ArrayList<>();
+        Minion minion = Minion.lets()
+                .maxSize(1024)
+                .and()
+                .onEvicted(new EvictionListener() {
+                    @Override
+                    public void onGroupEvicted(@NonNull Minion minion, @NonNull IniGroup group) {
+                        accessed.add(accessFromOtherThread(minion));
+                    }
+                })
+                .sync();
+        minion.setValue("first", "key", "1");
+        IniRecord record = minion.getOrCreateGroup("second").getOrCreateRecord("key", "2");
+
+        record.setValue(new String(new char[1024]).replace('\0', 'x'));
+
+        assertArrayEquals(new Boolean[]{true}, accessed.toArray());
+    }
+
+    /**
+     * Returns true if other thread has accessed the groups, while current one waits for it.
+     */
+    private static boolean accessFromOtherThread(final Minion minion) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                minion.getGroupNames();
+            }
+        });
+        thread.start();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxGroups_invalid_throwException() {
+        Minion.lets().maxGroups(0);
+    }
+
+}
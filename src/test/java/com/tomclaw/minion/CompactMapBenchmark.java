@@ -0,0 +1,97 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares retained heap and lookup time of {@link CompactMap} against {@link LinkedHashMap}
+ * for maps of group size.
+ */
+@Ignore("Benchmark prints measurements, it is run manually")
+public class CompactMapBenchmark {
+
+    private static final int MAPS_COUNT = 20000;
+    private static final int LOOKUPS = 20;
+
+    @Test
+    public void benchmarkSmallMaps() throws Exception {
+        String[] keys = new String[32];
+        for (int c = 0; c < keys.length; c++) {
+            keys[c] = "key_" + c;
+        }
+        // First pass is warm up.
+        for (int pass = 0; pass < 2; pass++) {
+            for (int size : new int[]{4, 8, 16, 32}) {
+                benchmark(size, keys, pass > 0);
+            }
+        }
+    }
+
+    private static void benchmark(int size, String[] keys, boolean print) {
+        report("linked", size, keys, print, new MapFactory() {
+            @Override
+            public Map<String, Object> create() {
+                return new LinkedHashMap<>();
+            }
+        });
+        report("compact", size, keys, print, new MapFactory() {
+            @Override
+            public Map<String, Object> create() {
+                return new CompactMap<>();
+            }
+        });
+    }
+
+    private static void report(String name, int size, String[] keys, boolean print,
+                               MapFactory factory) {
+        Object value = new Object();
+        long before = usedMemory();
+        Object[] maps = new Object[MAPS_COUNT];
+        for (int c = 0; c < MAPS_COUNT; c++) {
+            Map<String, Object> map = factory.create();
+            for (int i = 0; i < size; i++) {
+                map.put(keys[i], value);
+            }
+            maps[c] = map;
+        }
+        long retained = (usedMemory() - before) / MAPS_COUNT;
+
+        long start = System.nanoTime();
+        int found = 0;
+        for (Object map : maps) {
+            for (int i = 0; i < LOOKUPS; i++) {
+                if (((Map<?, ?>) map).get(keys[i % size]) != null) {
+                    found++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(MAPS_COUNT * LOOKUPS, found);
+        if (!print) {
+            return;
+        }
+        System.out.println(String.format(Locale.US, "%-8s %2d items %6d bytes/map %6.1f ns/lookup",
+                name, size, retained, (double) elapsed / MAPS_COUNT / LOOKUPS));
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int c = 0; c < 3; c++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private interface MapFactory {
+
+        Map<String, Object> create();
+
+    }
+
+}
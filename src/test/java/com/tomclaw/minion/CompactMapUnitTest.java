@@ -0,0 +1,176 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class CompactMapUnitTest {
+
+    @Test
+    public void put_smallMap_preservesInsertionOrder() {
+        CompactMap<String> map = new CompactMap<>();
+
+        map.put("c", "1");
+        map.put("a", "2");
+        map.put("b", "3");
+        map.put("a", "4");
+
+        assertEquals(3, map.size());
+        assertEquals("4", map.get("a"));
+        assertEquals(list("c", "a", "b"), new ArrayList<>(map.keySet()));
+        assertEquals(list("1", "4", "3"), new ArrayList<>(map.values()));
+    }
+
+    @Test
+    public void put_largeMap_findsAllKeys() {
+        CompactMap<Integer> map = new CompactMap<>();
+
+        for (int c = 0; c < 1000; c++) {
+            map.put("key" + c, c);
+        }
+
+        assertEquals(1000, map.size());
+        for (int c = 0; c < 1000; c++) {
+            assertEquals(Integer.valueOf(c), map.get("key" + c));
+        }
+        assertNull(map.get("key1000"));
+        assertFalse(map.containsKey("missing"));
+    }
+
+    @Test
+    public void remove_largeMap_shrinksAndPreservesOrder() {
+        CompactMap<Integer> map = new CompactMap<>();
+        for (int c = 0; c < 20; c++) {
+            map.put("key" + c, c);
+        }
+
+        for (int c = 0; c < 20; c += 2) {
+            assertEquals(Integer.valueOf(c), map.remove("key" + c));
+        }
+
+        assertEquals(10, map.size());
+        int expected = 1;
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            assertEquals("key" + expected, entry.getKey());
+            assertEquals(Integer.valueOf(expected), entry.getValue());
+            expected += 2;
+        }
+        assertNull(map.get("key0"));
+        assertEquals(Integer.valueOf(19), map.get("key19"));
+    }
+
+    @Test
+    public void iteratorRemove_removesCurrentItem() {
+        CompactMap<String> map = new CompactMap<>();
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+
+        Iterator<String> iterator = map.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().equals("2")) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(list("a", "c"), new ArrayList<>(map.keySet()));
+    }
+
+    @Test
+    public void iteratorRemove_largeMap_skipsRemovedItems() {
+        CompactMap<Integer> map = new CompactMap<>();
+        for (int c = 0; c < 100; c++) {
+            map.put("key" + c, c);
+        }
+
+        Iterator<Integer> iterator = map.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 3 != 0) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(34, map.size());
+        int expected = 0;
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            assertEquals(Integer.valueOf(expected), entry.getValue());
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+            expected += 3;
+        }
+        assertNull(map.get("key1"));
+    }
+
+    @Test(timeout = 10000)
+    public void remove_drainHugeMap_linearTime() {
+        CompactMap<Integer> map = new CompactMap<>();
+        int count = 200000;
+        for (int c = 0; c < count; c++) {
+            map.put("key" + c, c);
+        }
+
+        for (int c = 0; c < count; c++) {
+            assertEquals(Integer.valueOf(c), map.remove("key" + c));
+            if (c % 10000 == 0) {
+                assertEquals(Integer.valueOf(count - 1), map.get("key" + (count - 1)));
+            }
+        }
+
+        assertTrue(map.isEmpty());
+        assertFalse(map.keySet().iterator().hasNext());
+        map.put("key", 1);
+        assertEquals(Integer.valueOf(1), map.get("key"));
+    }
+
+    @Test
+    public void randomOperations_behavesLikeLinkedHashMap() {
+        CompactMap<Integer> map = new CompactMap<>();
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        Random random = new Random(42);
+
+        for (int c = 0; c < 20000; c++) {
+            String key = "key" + random.nextInt(c < 10000 ? 64 : 4);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, c), map.put(key, c));
+            }
+        }
+
+        assertEquals(expected, map);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+    }
+
+    @Test
+    public void clear_removesAll() {
+        CompactMap<String> map = new CompactMap<>();
+        for (int c = 0; c < 20; c++) {
+            map.put("key" + c, "value");
+        }
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get("key1"));
+        map.put("key1", "value");
+        assertEquals("value", map.get("key1"));
+    }
+
+    private static List<String> list(String... items) {
+        List<String> list = new ArrayList<>();
+        for (String item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+
+import com.tomclaw.minion.storage.CompressedStorage;
+import com.tomclaw.minion.storage.FileStorage;
+import com.tomclaw.minion.storage.Readable;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Compares load time and bytes on disk of compressed storages against plain {@link FileStorage}.
+ */
+@Ignore("Benchmark prints measurements, it is run manually")
+public class CompressedStorageBenchmark {
+
+    private static final int GROUPS_COUNT = 2000;
+    private static final int RECORDS_COUNT = 10;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void benchmarkLoad() throws Exception {
+        File plainFile = File.createTempFile("minion", ".ini");
+        File deflateFile = File.createTempFile("minion", ".ini.z");
+        File gzipFile = File.createTempFile("minion", ".ini.gz");
+        try {
+            FileStorage plain = FileStorage.create(plainFile);
+            CompressedStorage deflate = CompressedStorage.create(FileStorage.create(deflateFile),
+                    CompressedStorage.Format.DEFLATE, Deflater.DEFAULT_COMPRESSION);
+            CompressedStorage gzip = CompressedStorage.create(FileStorage.create(gzipFile),
+                    CompressedStorage.Format.GZIP, Deflater.BEST_SPEED);
+
+            fill(Minion.lets().store(plain).sync()).store();
+            fill(Minion.lets().store(deflate).sync()).store();
+            fill(Minion.lets().store(gzip).sync()).store();
+
+            report("plain", plainFile, plain);
+            report("deflate", deflateFile, deflate);
+            report("gzip", gzipFile, gzip);
+        } finally {
+            plainFile.delete();
+            deflateFile.delete();
+            gzipFile.delete();
+        }
+    }
+
+    private Minion fill(Minion minion) {
+        for (int group = 0; group < GROUPS_COUNT; group++) {
+            for (int record = 0; record < RECORDS_COUNT; record++) {
+                minion.setValue("group_" + group, "key_" + record, "value_" + record, "enabled");
+            }
+        }
+        return minion;
+    }
+
+    private void report(String name, File file, Readable storage) throws Exception {
+        Minion.Builder builder = Minion.lets().load(storage);
+        // Warm up
+        assertEquals(GROUPS_COUNT, builder.sync().getGroupsCount());
+        long start = System.nanoTime();
+        for (int c = 0; c < ITERATIONS; c++) {
+            builder.sync();
+        }
+        long elapsed = (System.nanoTime() - start) / ITERATIONS;
+        System.out.println(String.format(Locale.US, "%-8s %8d bytes %8.2f ms/load",
+                name, file.length(), elapsed / 1000000.0));
+    }
+
+}
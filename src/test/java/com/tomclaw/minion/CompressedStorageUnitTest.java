@@ -0,0 +1,87 @@
+package com.tomclaw.minion;
+
+import static com.tomclaw.minion.StreamHelper.readFully;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.tomclaw.minion.storage.CompressedStorage;
+import com.tomclaw.minion.storage.MemoryStorage;
+
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+public class CompressedStorageUnitTest {
+
+    @Test
+    public void readAfterWrite_deflate_dataEquals() throws Exception {
+        byte[] writeData = createRepetitiveData();
+        CompressedStorage storage = CompressedStorage.create(MemoryStorage.create());
+        OutputStream output = storage.write();
+
+        output.write(writeData);
+        output.close();
+
+        assertArrayEquals(writeData, readFully(storage));
+    }
+
+    @Test
+    public void readAfterWrite_gzip_dataEquals() throws Exception {
+        byte[] writeData = createRepetitiveData();
+        CompressedStorage storage = CompressedStorage.create(MemoryStorage.create(),
+                CompressedStorage.Format.GZIP, Deflater.BEST_COMPRESSION);
+        OutputStream output = storage.write();
+
+        output.write(writeData);
+        output.close();
+
+        assertArrayEquals(writeData, readFully(storage));
+    }
+
+    @Test
+    public void write_repetitiveData_compressed() throws Exception {
+        byte[] writeData = createRepetitiveData();
+        MemoryStorage plain = MemoryStorage.create();
+        CompressedStorage storage = CompressedStorage.create(plain);
+        OutputStream output = storage.write();
+
+        output.write(writeData);
+        output.close();
+
+        assertTrue(readFully(plain).length < writeData.length / 4);
+    }
+
+    @Test
+    public void storeAndLoad_throughCompressedStorage_valuesEquals() throws Exception {
+        CompressedStorage storage = CompressedStorage.create(MemoryStorage.create());
+        Minion minion = Minion.lets()
+                .store(storage)
+                .sync();
+        minion.setValue("group", "key", "value");
+        minion.setValue("group", "array_key", "value1", "value2");
+        minion.store();
+
+        Minion loaded = Minion.lets()
+                .load(storage)
+                .sync();
+
+        assertEquals("value", loaded.getValue("group", "key"));
+        assertArrayEquals(new String[]{"value1", "value2"}, loaded.getValues("group", "array_key"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_invalidLevel_throwException() {
+        CompressedStorage.create(MemoryStorage.create(), CompressedStorage.Format.DEFLATE, 42);
+    }
+
+    private byte[] createRepetitiveData() {
+        StringBuilder builder = new StringBuilder();
+        for (int c = 0; c < 1000; c++) {
+            builder.append("[group_").append(c).append("]\nkey=sample data\n");
+        }
+        return builder.toString().getBytes();
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.tomclaw.minion;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Reports throughput of Minion operations, performed by growing number of threads.
+ */
+@Ignore("Benchmark prints measurements, it is run manually")
+public class ConcurrencyStressBenchmark {
+
+    private static final int OPERATIONS_COUNT = 200000;
+    private static final int GROUPS_COUNT = 64;
+    private static final int KEYS_COUNT = 16;
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    @Test
+    public void benchmarkScaling() throws Exception {
+        // Warm up
+        run(4, 100, 0);
+        System.out.println(String.format(Locale.US, "%-8s %12s %12s %12s",
+                "threads", "reads", "mixed", "writes"));
+        for (int threads : THREADS) {
+            System.out.println(String.format(Locale.US, "%-8d %12.0f %12.0f %12.0f",
+                    threads, run(threads, 100, 0), run(threads, 80, 1), run(threads, 0, 5)));
+        }
+        System.out.println("operations per second, stores every 1000 operations");
+    }
+
+    /**
+     * @param readPercent   percent of the reads, the rest are writes.
+     * @param removePercent percent of the removals among writes.
+     */
+    private static double run(final int threads, final int readPercent, final int removePercent)
+            throws Exception {
+        final Minion minion = Minion.lets().store(MemoryStorage.create()).sync();
+        for (int group = 0; group < GROUPS_COUNT; group++) {
+            for (int key = 0; key < KEYS_COUNT; key++) {
+                minion.setValue("group_" + group, "key_" + key, "value");
+            }
+        }
+        final int operations = OPERATIONS_COUNT / threads;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int c = 0; c < threads; c++) {
+            final Random random = new Random(c);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int c = 0; c < operations; c++) {
+                            String name = "group_" + random.nextInt(GROUPS_COUNT);
+                            String key = "key_" + random.nextInt(KEYS_COUNT);
+                            int operation = random.nextInt(100);
+                            if (operation < readPercent) {
+                                minion.getValue(name, key);
+                            } else if (operation < readPercent + removePercent) {
+                                minion.removeRecord(name, key);
+                            } else {
+                                IniRecord record = minion.setValue(name, key, "value");
+                                if (record != null) {
+                                    record.setValue("value_" + c);
+                                }
+                            }
+                            if (c % 1000 == 999) {
+                                minion.store();
+                            }
+                        }
+                    } catch (InterruptedException ignored) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        long time = System.nanoTime();
+        start.countDown();
+        done.await();
+        double seconds = (System.nanoTime() - time) / 1000000000.0;
+        return operations * threads / seconds;
+    }
+
+}
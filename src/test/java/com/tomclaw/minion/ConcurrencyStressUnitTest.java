@@ -0,0 +1,341 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.tomclaw.minion.storage.FileStorage;
+import com.tomclaw.minion.storage.MemoryStorage;
+import com.tomclaw.minion.storage.Readable;
+import com.tomclaw.minion.storage.Writable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hammers Minion from many threads and checks, that no operation fails
+ * and data stays consistent afterwards.
+ */
+public class ConcurrencyStressUnitTest {
+
+    private static final int THREADS_COUNT = 8;
+    private static final int OPERATIONS_COUNT = 20000;
+    private static final int GROUPS_COUNT = 16;
+    private static final int KEYS_COUNT = 16;
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("minion", ".ini");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test(timeout = 60000)
+    public void mixedOperations_memoryStorage_consistent() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion minion = Minion.lets().store(storage).sync();
+
+        hammer(minion, true);
+
+        assertConsistent(minion);
+        assertRoundTrip(minion, storage);
+    }
+
+    @Test(timeout = 60000)
+    public void mixedOperations_fileStorage_consistent() throws Exception {
+        FileStorage storage = FileStorage.create(file);
+        Minion minion = Minion.lets().store(storage).sync();
+
+        hammer(minion, true);
+
+        assertConsistent(minion);
+        assertRoundTrip(minion, storage);
+    }
+
+    @Test(timeout = 60000)
+    public void mixedOperations_asyncStore_consistent() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        final CountDownLatch loaded = new CountDownLatch(1);
+        Minion minion = Minion.lets()
+                .store(storage)
+                .async(new LatchCallback(loaded));
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+
+        hammer(minion, true);
+        CountDownLatch stored = new CountDownLatch(1);
+        minion.store(new LatchCallback(stored));
+        assertTrue(stored.await(5, TimeUnit.SECONDS));
+
+        assertConsistent(minion);
+        assertRoundTrip(minion, storage);
+    }
+
+    @Test(timeout = 60000)
+    public void disjointWriters_fileStorage_allValuesStored() throws Exception {
+        final FileStorage storage = FileStorage.create(file);
+        final Minion minion = Minion.lets().store(storage).sync();
+
+        runThreads(new Worker() {
+            @Override
+            public void run(int thread, Random random) {
+                for (int c = 0; c < OPERATIONS_COUNT / 10; c++) {
+                    minion.setValue("thread_" + thread, "key_" + c, "value_" + c);
+                    if (c % 100 == 0) {
+                        minion.store();
+                    }
+                }
+            }
+        });
+
+        assertConsistent(minion);
+        Minion loaded = assertRoundTrip(minion, storage);
+        for (int thread = 0; thread < THREADS_COUNT; thread++) {
+            IniGroup group = loaded.getGroup("thread_" + thread);
+            assertNotNull(group);
+            assertEquals(OPERATIONS_COUNT / 10, group.getRecordsCount());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void readsDuringAsyncLoad_seeLoadedData() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion source = Minion.lets().store(storage).sync();
+        for (int group = 0; group < GROUPS_COUNT * 10; group++) {
+            for (int key = 0; key < KEYS_COUNT; key++) {
+                source.setValue("group_" + group, "key_" + key, "value");
+            }
+        }
+        source.store();
+
+        final Minion minion = Minion.lets()
+                .load(storage)
+                .async(new EmptyResultCallback());
+        runThreads(new Worker() {
+            @Override
+            public void run(int thread, Random random) {
+                for (int c = 0; c < OPERATIONS_COUNT / 10; c++) {
+                    String name = "group_" + random.nextInt(GROUPS_COUNT * 10);
+                    assertEquals("value", minion.getValue(name, "key_" + random.nextInt(KEYS_COUNT)));
+                }
+            }
+        });
+
+        assertEquals(GROUPS_COUNT * 10, minion.getGroupsCount());
+        assertConsistent(minion);
+    }
+
+    @Test(timeout = 60000)
+    public void lookupsDuringRemovals_returnRequestedRecord() throws Exception {
+        final Minion minion = Minion.lets().buildSimple();
+        final IniGroup group = minion.getOrCreateGroup("group");
+        for (int key = 0; key < KEYS_COUNT * 4; key++) {
+            minion.setValue("group", "key_" + key, "value");
+        }
+        final AtomicBoolean finished = new AtomicBoolean();
+        runThreads(new Worker() {
+            @Override
+            public void run(int thread, Random random) {
+                if (thread == 0) {
+                    for (int c = 0; c < OPERATIONS_COUNT * 5; c++) {
+                        String key = "key_" + random.nextInt(KEYS_COUNT * 4);
+                        if (random.nextBoolean()) {
+                            minion.removeRecord("group", key);
+                        } else {
+                            minion.setValue("group", key, "value_" + c);
+                        }
+                    }
+                    finished.set(true);
+                    return;
+                }
+                while (!finished.get()) {
+                    String key = "key_" + random.nextInt(KEYS_COUNT * 4);
+                    IniRecord record = group.getRecord(key);
+                    if (record != null) {
+                        assertEquals(key, record.getKey());
+                    }
+                    IniGroup found = minion.getGroup("group");
+                    assertTrue(found == null || found.getName().equals("group"));
+                }
+            }
+        });
+
+        assertConsistent(minion);
+    }
+
+    @Test(timeout = 60000)
+    public void valueQueriesDuringMutations_noDeadlock() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion source = Minion.lets().store(storage).sync();
+        for (int group = 0; group < GROUPS_COUNT * 10; group++) {
+            source.setValue("group_" + group, "state", "state_" + group % 4);
+        }
+        source.store();
+
+        // Index is rebuilt by the first query after load, while records are being added.
+        for (int round = 0; round < 50; round++) {
+            final Minion minion = Minion.lets().load(storage).and().indexValues("state").sync();
+            runThreads(new Worker() {
+                @Override
+                public void run(int thread, Random random) {
+                    for (int c = 0; c < OPERATIONS_COUNT / 100; c++) {
+                        String name = "group_" + random.nextInt(GROUPS_COUNT * 10);
+                        if (thread % 2 == 0) {
+                            minion.findGroups("state", "state_" + random.nextInt(4));
+                            minion.findRecords("state", "state_" + random.nextInt(4));
+                        } else if (random.nextInt(10) == 0) {
+                            minion.removeGroup(name);
+                        } else {
+                            minion.setValue(name, "state", "state_" + random.nextInt(4));
+                        }
+                    }
+                }
+            });
+
+            for (int state = 0; state < 4; state++) {
+                for (IniRecord record : minion.findRecords("state", "state_" + state)) {
+                    assertEquals("state_" + state, record.getValue());
+                }
+            }
+            assertConsistent(minion);
+        }
+    }
+
+    private static void hammer(final Minion minion, final boolean withClear) throws Exception {
+        runThreads(new Worker() {
+            @Override
+            public void run(int thread, Random random) {
+                for (int c = 0; c < OPERATIONS_COUNT; c++) {
+                    String name = "group_" + random.nextInt(GROUPS_COUNT);
+                    String key = "key_" + random.nextInt(KEYS_COUNT);
+                    int operation = random.nextInt(1000);
+                    if (operation < 400) {
+                        minion.getValue(name, key);
+                    } else if (operation < 700) {
+                        minion.setValue(name, key, "value_" + c, "thread_" + thread);
+                    } else if (operation < 800) {
+                        IniRecord record = minion.setValue(name, key, "value");
+                        if (record != null) {
+                            record.setValue("updated_" + c);
+                        }
+                    } else if (operation < 900) {
+                        minion.removeRecord(name, key);
+                    } else if (operation < 960) {
+                        minion.removeGroup(name);
+                    } else if (operation < 995) {
+                        minion.store();
+                    } else if (withClear) {
+                        minion.clear();
+                    }
+                }
+            }
+        });
+    }
+
+    private static void runThreads(final Worker worker) throws Exception {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < THREADS_COUNT; c++) {
+            final int thread = c;
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        worker.run(thread, new Random(thread));
+                    } catch (Throwable ex) {
+                        failure.compareAndSet(null, ex);
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Throwable ex = failure.get();
+        if (ex instanceof Exception) {
+            throw (Exception) ex;
+        } else if (ex != null) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    /**
+     * Checks, that groups, records and size estimations agree with each other.
+     */
+    private static void assertConsistent(Minion minion) {
+        long footprint = SizeEstimator.minionSize();
+        int groupsCount = 0;
+        for (IniGroup group : minion.getGroups()) {
+            assertNotNull(group);
+            assertEquals(group, minion.getGroup(group.getName()));
+            int recordsCount = 0;
+            for (IniRecord record : group.getRecords()) {
+                assertNotNull(record);
+                assertEquals(record, group.getRecord(record.getKey()));
+                assertNotNull(record.getValues());
+                recordsCount++;
+            }
+            assertEquals(group.getRecordsCount(), recordsCount);
+            footprint += group.estimateFootprint();
+            groupsCount++;
+        }
+        assertEquals(minion.getGroupsCount(), groupsCount);
+        assertEquals(footprint, minion.estimateFootprint());
+    }
+
+    /**
+     * Stores Minion, loads it back and checks, that loaded data is equal.
+     */
+    private static Minion assertRoundTrip(Minion minion, Writable writable) throws Exception {
+        minion.store();
+        Minion loaded = Minion.lets().load((Readable) writable).sync();
+        assertEquals(0, minion.diff(loaded).getChanges().size());
+        return loaded;
+    }
+
+    private interface Worker {
+
+        void run(int thread, Random random) throws Exception;
+
+    }
+
+    private static class LatchCallback implements ResultCallback {
+
+        private final CountDownLatch latch;
+
+        LatchCallback(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onReady(Minion minion) {
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception ex) {
+        }
+
+    }
+
+}
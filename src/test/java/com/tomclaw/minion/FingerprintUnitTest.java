@@ -0,0 +1,170 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import com.tomclaw.minion.storage.FileStorage;
+import com.tomclaw.minion.storage.Fingerprint;
+import com.tomclaw.minion.storage.Readable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class FingerprintUnitTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("minion", ".ini");
+        write("[group]\nkey=value");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void getFingerprint_fileChanged_fingerprintDiffers() throws Exception {
+        FileStorage storage = FileStorage.create(file, true);
+        Fingerprint before = storage.getFingerprint();
+
+        // Same size and timestamp, only content hash differs.
+        long modified = file.lastModified();
+        write("[group]\nkey=other");
+        file.setLastModified(modified);
+
+        assertNotEquals(before, storage.getFingerprint());
+    }
+
+    @Test
+    public void getFingerprint_noFile_returnsNull() throws Exception {
+        file.delete();
+
+        assertNull(FileStorage.create(file).getFingerprint());
+    }
+
+    @Test
+    public void refresh_fileNotChanged_skipsRead() throws Exception {
+        CountingFileStorage storage = new CountingFileStorage(file);
+        Minion minion = Minion.lets()
+                .load(storage)
+                .sync();
+
+        minion.refresh();
+
+        assertEquals(1, storage.reads);
+        assertEquals("value", minion.getValue("group", "key"));
+    }
+
+    @Test
+    public void refresh_fileChanged_reloads() throws Exception {
+        CountingFileStorage storage = new CountingFileStorage(file);
+        Minion minion = Minion.lets()
+                .load(storage)
+                .sync();
+
+        write("[other_group]\nkey=changed_value");
+        file.setLastModified(file.lastModified() + 2000);
+        minion.refresh();
+
+        assertEquals(2, storage.reads);
+        assertNull(minion.getGroup("group"));
+        assertEquals("changed_value", minion.getValue("other_group", "key"));
+    }
+
+    @Test
+    public void refresh_notFingerprintable_alwaysReloads() throws Exception {
+        final int[] reads = {0};
+        Minion minion = Minion.lets()
+                .load(new Readable() {
+                    @Override
+                    public InputStream read() throws IOException {
+                        reads[0]++;
+                        return new ByteArrayInputStream(("[group]\nkey=value_" + reads[0])
+                                .getBytes("UTF-8"));
+                    }
+                })
+                .sync();
+
+        minion.refresh();
+        minion.refresh();
+
+        assertEquals(3, reads[0]);
+        assertEquals("value_3", minion.getValue("group", "key"));
+    }
+
+    @Test
+    public void store_contentNotChanged_skipsWrite() throws Exception {
+        CountingFileStorage storage = new CountingFileStorage(file);
+        Minion minion = Minion.lets()
+                .load(storage)
+                .and()
+                .store(storage)
+                .sync();
+
+        minion.store();
+        minion.store();
+        minion.setValue("group", "other_key", "value");
+        minion.store();
+
+        assertEquals(1, storage.writes);
+    }
+
+    @Test
+    public void store_fileChangedExternally_writes() throws Exception {
+        CountingFileStorage storage = new CountingFileStorage(file);
+        Minion minion = Minion.lets()
+                .load(storage)
+                .and()
+                .store(storage)
+                .sync();
+
+        write("[other_group]\nkey=changed_value");
+        file.setLastModified(file.lastModified() + 2000);
+        minion.store();
+
+        assertEquals(1, storage.writes);
+    }
+
+    private void write(String data) throws Exception {
+        OutputStream output = new FileOutputStream(file);
+        output.write(data.getBytes("UTF-8"));
+        output.close();
+    }
+
+    private static class CountingFileStorage extends FileStorage {
+
+        private int reads;
+        private int writes;
+
+        CountingFileStorage(File file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream read() throws FileNotFoundException {
+            reads++;
+            return super.read();
+        }
+
+        @Override
+        public OutputStream write() throws FileNotFoundException {
+            writes++;
+            return super.write();
+        }
+
+    }
+
+}
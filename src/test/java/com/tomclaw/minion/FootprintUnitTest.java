@@ -0,0 +1,134 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+public class FootprintUnitTest {
+
+    @Test
+    public void estimateFootprint_valueAdded_groupAndMinionGrowEqually() {
+        Minion minion = Minion.lets().buildSimple();
+        IniGroup group = minion.getOrCreateGroup("group");
+        long minionBefore = minion.estimateFootprint();
+        long groupBefore = group.estimateFootprint();
+
+        minion.setValue("group", "key", "value", "other");
+
+        long delta = group.estimateFootprint() - groupBefore;
+        assertTrue(delta > 0);
+        assertEquals(minionBefore + delta, minion.estimateFootprint());
+    }
+
+    @Test
+    public void estimateFootprint_longerValue_largerFootprint() {
+        Minion minion = Minion.lets().buildSimple();
+        minion.setValue("short", "key", "value");
+        minion.setValue("long", "key", "value with many more characters");
+
+        assertTrue(minion.getGroup("long").estimateFootprint()
+                > minion.getGroup("short").estimateFootprint());
+    }
+
+    @Test
+    public void estimateFootprint_recordReplaced_accountsNewValue() {
+        Minion minion = Minion.lets().buildSimple();
+        IniRecord record = minion.setValue("group", "key", "value");
+        long before = minion.estimateFootprint();
+
+        record.setValue("value", "value", "value");
+
+        assertTrue(minion.estimateFootprint() > before);
+        assertEquals(minion.estimateFootprint(), sumOfGroups(minion));
+    }
+
+    @Test
+    public void estimateFootprint_recordsAndGroupsRemoved_returnsToEmpty() {
+        Minion minion = Minion.lets().buildSimple();
+        long empty = minion.estimateFootprint();
+        minion.setValue("group", "key", "value");
+        long withGroup = minion.getGroup("group").estimateFootprint();
+        minion.setValue("group", "other", "value");
+        minion.setValue("second", "key", "value");
+
+        minion.removeRecord("group", "other");
+        assertEquals(withGroup, minion.getGroup("group").estimateFootprint());
+        minion.removeGroup("second");
+        minion.removeGroup("group");
+
+        assertEquals(empty, minion.estimateFootprint());
+    }
+
+    @Test
+    public void estimateFootprint_cleared_returnsToEmpty() {
+        Minion minion = Minion.lets().buildSimple();
+        long empty = minion.estimateFootprint();
+        minion.setValue("group", "key", "value");
+
+        minion.clear();
+
+        assertEquals(empty, minion.estimateFootprint());
+    }
+
+    @Test
+    public void estimateFootprint_loaded_equalsSumOfGroups() throws Exception {
+        Minion minion = Minion.lets()
+                .load(StringStorage.create("[first]\nkey=value\narray=a,b,c\n[second]\nkey=value"))
+                .sync();
+
+        minion.getValues("first", "array");
+
+        assertEquals(minion.estimateFootprint(), sumOfGroups(minion));
+    }
+
+    @Test
+    public void estimateFootprint_rawValueSplit_growsWithItems() throws Exception {
+        Minion minion = Minion.lets()
+                .load(StringStorage.create("[group]\narray=" + numbers(1000)))
+                .sync();
+        long before = minion.estimateFootprint();
+
+        String[] values = minion.getValues("group", "array");
+
+        assertEquals(before - SizeEstimator.rawValueSize(numbers(1000))
+                + SizeEstimator.valuesSize(values), minion.estimateFootprint());
+        assertEquals(minion.estimateFootprint(), sumOfGroups(minion));
+    }
+
+    @Test
+    public void estimateFootprint_rawValueParsed_shrinksToNumbers() throws Exception {
+        Minion minion = Minion.lets()
+                .load(StringStorage.create("[group]\narray=" + numbers(1000)))
+                .sync();
+        long before = minion.estimateFootprint();
+
+        minion.getGroup("group").getRecord("array").getIntArray();
+
+        assertEquals(before - SizeEstimator.rawValueSize(numbers(1000))
+                + SizeEstimator.numbersSize(1000, 4), minion.estimateFootprint());
+        assertEquals(minion.estimateFootprint(), sumOfGroups(minion));
+    }
+
+    private static String numbers(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int c = 1; c <= count; c++) {
+            if (c > 1) {
+                builder.append(',');
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private static long sumOfGroups(Minion minion) {
+        long size = SizeEstimator.minionSize();
+        for (IniGroup group : minion.getGroups()) {
+            size += group.estimateFootprint();
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * Compares lookup time and footprint of {@link FrozenMinion} against mutable {@link Minion}.
+ */
+@Ignore("Benchmark prints measurements, it is run manually")
+public class FrozenMinionBenchmark {
+
+    private static final int GROUPS_COUNT = 5000;
+    private static final int RECORDS_COUNT = 10;
+    private static final int ITERATIONS = 100;
+
+    @Test
+    public void benchmarkLookup() throws Exception {
+        Minion minion = Minion.lets().sync();
+        String[] names = new String[GROUPS_COUNT];
+        String[] keys = new String[RECORDS_COUNT];
+        for (int record = 0; record < RECORDS_COUNT; record++) {
+            keys[record] = "key_" + record;
+        }
+        for (int group = 0; group < GROUPS_COUNT; group++) {
+            names[group] = "group_" + group;
+            for (int record = 0; record < RECORDS_COUNT; record++) {
+                minion.setValue(names[group], keys[record], "value_" + record, "enabled");
+            }
+        }
+        long start = System.nanoTime();
+        FrozenMinion frozen = minion.freeze();
+        long freezeTime = System.nanoTime() - start;
+
+        long minionTime = 0;
+        long frozenTime = 0;
+        for (int c = 0; c <= ITERATIONS; c++) {
+            start = System.nanoTime();
+            int found = 0;
+            for (String name : names) {
+                for (String key : keys) {
+                    if (minion.getValue(name, key) != null) {
+                        found++;
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            assertEquals(GROUPS_COUNT * RECORDS_COUNT, found);
+            start = System.nanoTime();
+            found = 0;
+            for (String name : names) {
+                for (String key : keys) {
+                    if (frozen.getValue(name, key) != null) {
+                        found++;
+                    }
+                }
+            }
+            long frozenElapsed = System.nanoTime() - start;
+            assertEquals(GROUPS_COUNT * RECORDS_COUNT, found);
+            // First iteration is warm up.
+            if (c > 0) {
+                minionTime += elapsed;
+                frozenTime += frozenElapsed;
+            }
+        }
+        int lookups = ITERATIONS * GROUPS_COUNT * RECORDS_COUNT;
+        long minionSize = 0;
+        for (IniGroup group : minion.getGroups()) {
+            minionSize += group.estimateFootprint();
+        }
+        System.out.println(String.format(Locale.US, "freeze   %8.2f ms",
+                freezeTime / 1000000.0));
+        System.out.println(String.format(Locale.US, "minion   %8.1f ns/lookup %10d bytes",
+                (double) minionTime / lookups, minionSize));
+        System.out.println(String.format(Locale.US, "frozen   %8.1f ns/lookup %10d bytes",
+                (double) frozenTime / lookups, frozen.getSize()));
+    }
+
+}
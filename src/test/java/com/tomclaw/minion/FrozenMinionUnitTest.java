@@ -0,0 +1,174 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrozenMinionUnitTest {
+
+    @Test
+    public void freeze_allRecords_returnsValues() throws Exception {
+        Minion minion = fill(Minion.lets().sync(), 100, 7);
+
+        FrozenMinion frozen = minion.freeze();
+
+        assertEquals(100, frozen.getGroupsCount());
+        assertEquals(700, frozen.getRecordsCount());
+        for (int group = 0; group < 100; group++) {
+            for (int record = 0; record < 7; record++) {
+                assertArrayEquals(minion.getValues("group_" + group, "key_" + record),
+                        frozen.getValues("group_" + group, "key_" + record));
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void getValues_concurrentFirstAccess_returnsValues() throws Exception {
+        final Minion minion = fill(Minion.lets().sync(), 50, 10);
+        final AtomicInteger mismatches = new AtomicInteger();
+        for (int round = 0; round < 20; round++) {
+            final FrozenMinion frozen = minion.freeze();
+            Thread[] threads = new Thread[4];
+            for (int c = 0; c < threads.length; c++) {
+                threads[c] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int group = 0; group < 50; group++) {
+                            for (int record = 0; record < 10; record++) {
+                                String name = "group_" + group;
+                                String key = "key_" + record;
+                                if (!Arrays.equals(minion.getValues(name, key),
+                                        frozen.getValues(name, key))
+                                        || !frozen.getGroupNames().contains(name)) {
+                                    mismatches.incrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                });
+                threads[c].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        assertEquals(0, mismatches.get());
+    }
+
+    @Test
+    public void getValue_missingRecord_returnsDefault() throws Exception {
+        Minion minion = fill(Minion.lets().sync(), 10, 3);
+
+        FrozenMinion frozen = minion.freeze();
+
+        assertNull(frozen.getValue("group_1", "key_3"));
+        assertNull(frozen.getValue("group_10", "key_1"));
+        assertEquals("default", frozen.getValue("group_1", "missing", "default"));
+        assertFalse(frozen.contains("key_1", "group_1"));
+        assertTrue(frozen.contains("group_1", "key_1"));
+    }
+
+    @Test
+    public void freeze_emptyMinion_returnsNothing() throws Exception {
+        FrozenMinion frozen = Minion.lets().sync().freeze();
+
+        assertEquals(0, frozen.getRecordsCount());
+        assertNull(frozen.getValue("group", "key"));
+        assertEquals(Collections.<String>emptyList(), frozen.getGroupNames());
+    }
+
+    @Test
+    public void freeze_minionChanged_snapshotIsNotChanged() throws Exception {
+        Minion minion = Minion.lets().sync();
+        minion.setValue("group", "key", "old");
+
+        FrozenMinion frozen = minion.freeze();
+        minion.setValue("group", "key", "new");
+        minion.setValue("group", "other", "value");
+
+        assertEquals("old", frozen.getValue("group", "key"));
+        assertFalse(frozen.contains("group", "other"));
+    }
+
+    @Test
+    public void getKeys_preservesOrder() throws Exception {
+        Minion minion = Minion.lets().sync();
+        minion.setValue("second", "b", "1");
+        minion.setValue("second", "a", "2");
+        minion.setValue("first", "c", "3");
+
+        FrozenMinion frozen = minion.freeze();
+
+        assertEquals(Arrays.asList("second", "first"), frozen.getGroupNames());
+        assertEquals(Arrays.asList("b", "a"), frozen.getKeys("second"));
+        assertEquals(Collections.<String>emptyList(), frozen.getKeys("missing"));
+    }
+
+    @Test
+    public void getValue_nonAsciiAndEmptyValues_returnsValues() throws Exception {
+        Minion minion = Minion.lets().sync();
+        minion.setValue("группа", "ключ", "значение", "");
+        minion.setValue("group", "empty");
+
+        FrozenMinion frozen = minion.freeze();
+
+        assertArrayEquals(new String[]{"значение", ""}, frozen.getValues("группа", "ключ"));
+        assertArrayEquals(new String[0], frozen.getValues("group", "empty"));
+        assertNull(frozen.getValue("группа", "ключи"));
+    }
+
+    @Test
+    public void map_writtenFile_returnsSameValues() throws Exception {
+        Minion minion = fill(Minion.lets().sync(), 50, 5);
+        File file = File.createTempFile("minion", ".frozen");
+        try {
+            minion.freeze().writeTo(file);
+
+            FrozenMinion mapped = FrozenMinion.map(file);
+
+            assertEquals(250, mapped.getRecordsCount());
+            assertEquals("value_3", mapped.getValue("group_42", "key_3"));
+            assertEquals(minion.freeze().getSize(), file.length());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void wrap_writtenBytes_returnsSameValues() throws Exception {
+        Minion minion = fill(Minion.lets().sync(), 3, 3);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        minion.freeze().writeTo(outputStream);
+
+        FrozenMinion frozen = FrozenMinion.wrap(ByteBuffer.wrap(outputStream.toByteArray()));
+
+        assertEquals("value_2", frozen.getValue("group_2", "key_2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrap_invalidBytes_throwsException() {
+        FrozenMinion.wrap(ByteBuffer.wrap(new byte[64]));
+    }
+
+    private static Minion fill(Minion minion, int groups, int records) {
+        for (int group = 0; group < groups; group++) {
+            for (int record = 0; record < records; record++) {
+                minion.setValue("group_" + group, "key_" + record, "value_" + record, "enabled");
+            }
+        }
+        return minion;
+    }
+
+}
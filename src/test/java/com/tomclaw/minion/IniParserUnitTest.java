@@ -0,0 +1,129 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+public class IniParserUnitTest {
+
+    @Test
+    public void load_utf8Values_decodedCorrectly() throws Exception {
+        String data = "[группа]\nключ=значение\nemoji=😀, ünïcödé";
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(data))
+                .sync();
+
+        assertEquals("значение", minion.getValue("группа", "ключ"));
+        assertArrayEquals(new String[]{"😀", "ünïcödé"}, minion.getValues("группа", "emoji"));
+    }
+
+    @Test
+    public void load_windowsLineEndings_parsedCorrectly() throws Exception {
+        String data = "[group]\r\nfirst=1\r\n\r\nsecond=2\rthird=3\r\n";
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(data))
+                .sync();
+
+        assertEquals("1", minion.getValue("group", "first"));
+        assertEquals("2", minion.getValue("group", "second"));
+        assertEquals("3", minion.getValue("group", "third"));
+        assertEquals(3, minion.getGroup("group").getRecordsCount());
+    }
+
+    @Test
+    public void load_lineLongerThanBuffer_parsedCorrectly() throws Exception {
+        StringBuilder value = new StringBuilder();
+        for (int c = 0; c < 20000; c++) {
+            value.append((char) ('a' + c % 26));
+        }
+        String data = "[group]\nkey=" + value + "\nnext=value";
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(data))
+                .sync();
+
+        assertEquals(value.toString(), minion.getValue("group", "key"));
+        assertEquals("value", minion.getValue("group", "next"));
+    }
+
+    @Test
+    public void load_groupWithComment_parsedCorrectly() throws Exception {
+        String data = "[ first ] // comment\nkey=1\n[second] ; comment\nkey=2\n[third #\nkey=3";
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(data))
+                .sync();
+
+        assertEquals("1", minion.getValue("first", "key"));
+        assertEquals("2", minion.getValue("second", "key"));
+        assertNull(minion.getGroup("third"));
+    }
+
+    @Test
+    public void load_quotedArrayValue_mergedCorrectly() throws Exception {
+        String data = "[group]\nkey=\"a, b\", c\nfirst, second ; comment";
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(data))
+                .sync();
+
+        assertArrayEquals(new String[]{"\"a, b\"", "c"}, minion.getValues("group", "key"));
+        assertArrayEquals(new String[]{"first", "second"},
+                minion.getValues("group", "first, second ; comment"));
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void load_emptyKey_throwException() throws Exception {
+        Minion.lets()
+                .load(StringStorage.create("[group]\n=value"))
+                .sync();
+    }
+
+    @Test
+    public void storeAndLoad_customCharset_roundTrip() throws Exception {
+        Charset charset = Charset.forName("UTF-16LE");
+        MemoryStorage storage = MemoryStorage.create();
+        Minion minion = Minion.lets()
+                .store(storage)
+                .and()
+                .charset(charset)
+                .sync();
+        minion.setValue("группа", "key", "значение", "value");
+        minion.store();
+
+        Minion loaded = Minion.lets()
+                .load(storage)
+                .and()
+                .charset(charset)
+                .sync();
+
+        assertArrayEquals(new String[]{"значение", "value"}, loaded.getValues("группа", "key"));
+    }
+
+    @Test
+    public void parse_latin1Charset_decodedByBytes() throws Exception {
+        Charset charset = Charset.forName("ISO-8859-1");
+        byte[] data = "[group]\nkey=café".getBytes(charset);
+        final String[] result = new String[1];
+
+        IniParser.parse(new ByteArrayInputStream(data), charset, new IniParser.Handler() {
+            @Override
+            public boolean onGroup(String name) {
+                return true;
+            }
+
+            @Override
+            public void onRecord(String key, String rawValue, boolean array) {
+                result[0] = rawValue;
+            }
+        });
+
+        assertEquals("café", result[0]);
+    }
+
+}
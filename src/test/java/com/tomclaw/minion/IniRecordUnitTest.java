@@ -1,6 +1,10 @@
 package com.tomclaw.minion;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -61,4 +65,74 @@ public class IniRecordUnitTest {
 
         record.getValue();
     }
+
+    @Test
+    public void createRecordWithRawValue_splitsOnFirstAccess() {
+        IniRecord record = new IniRecord("key", " \"a,b\", c ; comment", false);
+
+        String[] values = record.getValues();
+
+        assertArrayEquals(new String[]{"\"a,b\"", "c"}, values);
+        assertSame(values, record.getValues());
+    }
+
+    @Test
+    public void createRecordWithRawArray_splitsOnFirstAccess() {
+        IniRecord record = new IniRecord("a, b, c", "a, b, c", true);
+
+        assertArrayEquals(new String[]{"a", "b", "c"}, record.getValues());
+    }
+
+    @Test
+    public void setValue_rawRecord_replacesRawValue() {
+        IniRecord record = new IniRecord("key", "a,b", false);
+
+        record.setValue("c");
+
+        assertArrayEquals(new String[]{"c"}, record.getValues());
+    }
+
+    @Test
+    public void getIntArray_emptyRawValue_keepsEmptyValue() {
+        IniRecord ints = new IniRecord("key", "", false);
+        IniRecord longs = new IniRecord("key", " ", false);
+
+        assertEquals(0, ints.getIntArray().length);
+        assertEquals(0, longs.getLongArray().length);
+
+        assertTrue(ints.hasValue());
+        assertTrue(longs.hasValue());
+        assertArrayEquals(new String[]{""}, ints.getValues());
+        assertArrayEquals(new String[]{""}, longs.getValues());
+    }
+
+    @Test
+    public void getIntArray_returnedArrayChanged_recordNotChanged() {
+        IniRecord parsed = new IniRecord("key", "1,2,3", false);
+        IniRecord set = new IniRecord("key");
+        int[] value = {1, 2, 3};
+        set.setIntArray(value);
+
+        parsed.getIntArray()[0] = 5;
+        set.getIntArray()[0] = 5;
+        value[1] = 5;
+
+        assertArrayEquals(new int[]{1, 2, 3}, parsed.getIntArray());
+        assertArrayEquals(new int[]{1, 2, 3}, set.getIntArray());
+        assertArrayEquals(new String[]{"1", "2", "3"}, set.getValues());
+    }
+
+    @Test
+    public void getValue_numbers_readsFirstNumber() {
+        IniRecord record = new IniRecord("key");
+        IniRecord empty = new IniRecord("key");
+
+        record.setLongArray(7, 8);
+        empty.setIntArray();
+
+        assertTrue(record.hasValue());
+        assertEquals("7", record.getValue());
+        assertFalse(empty.hasValue());
+    }
+
 }
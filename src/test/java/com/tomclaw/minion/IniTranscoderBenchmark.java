@@ -0,0 +1,129 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Measures throughput of streaming transcoders on large input and compares it
+ * with loading of the whole {@link Minion} and walking its groups.
+ */
+@Ignore("Benchmark prints measurements, it is run manually")
+public class IniTranscoderBenchmark {
+
+    private static final int GROUPS_COUNT = 20000;
+    private static final int RECORDS_COUNT = 10;
+    private static final int ITERATIONS = 5;
+
+    @Test
+    public void benchmarkTranscode() throws Exception {
+        final byte[] ini = createIni();
+        final byte[] json = transcode(ini, new Transcoding() {
+            @Override
+            public void run(byte[] input, OutputStream output) throws Exception {
+                IniTranscoder.iniToJson(new ByteArrayInputStream(input), output);
+            }
+        });
+        final byte[] properties = transcode(ini, new Transcoding() {
+            @Override
+            public void run(byte[] input, OutputStream output) throws Exception {
+                IniTranscoder.iniToProperties(new ByteArrayInputStream(input), output);
+            }
+        });
+        Properties loaded = new Properties();
+        loaded.load(new ByteArrayInputStream(properties));
+        assertEquals(GROUPS_COUNT * RECORDS_COUNT, loaded.size());
+
+        report("ini > json", ini, new Transcoding() {
+            @Override
+            public void run(byte[] input, OutputStream output) throws Exception {
+                IniTranscoder.iniToJson(new ByteArrayInputStream(input), output);
+            }
+        });
+        report("json > ini", json, new Transcoding() {
+            @Override
+            public void run(byte[] input, OutputStream output) throws Exception {
+                IniTranscoder.jsonToIni(new ByteArrayInputStream(input), output);
+            }
+        });
+        report("ini > prop", ini, new Transcoding() {
+            @Override
+            public void run(byte[] input, OutputStream output) throws Exception {
+                IniTranscoder.iniToProperties(new ByteArrayInputStream(input), output);
+            }
+        });
+        report("prop > ini", properties, new Transcoding() {
+            @Override
+            public void run(byte[] input, OutputStream output) throws Exception {
+                IniTranscoder.propertiesToIni(new ByteArrayInputStream(input), output);
+            }
+        });
+        report("minion walk", ini, new Transcoding() {
+            @Override
+            public void run(byte[] input, OutputStream output) throws Exception {
+                MemoryStorage storage = MemoryStorage.create();
+                OutputStream stream = storage.write();
+                stream.write(input);
+                stream.close();
+                Minion minion = Minion.lets().load(storage).sync();
+                StringBuilder builder = new StringBuilder();
+                for (IniGroup group : minion.getGroups()) {
+                    for (IniRecord record : group.getRecords()) {
+                        builder.setLength(0);
+                        builder.append(group.getName()).append('.').append(record.getKey())
+                                .append('=').append(StringHelper.join(',', record.getValues()))
+                                .append('\n');
+                        output.write(builder.toString().getBytes(Minion.DEFAULT_CHARSET));
+                    }
+                }
+            }
+        });
+    }
+
+    private static byte[] createIni() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion minion = Minion.lets().store(storage).sync();
+        for (int group = 0; group < GROUPS_COUNT; group++) {
+            for (int record = 0; record < RECORDS_COUNT; record++) {
+                minion.setValue("group_" + group, "key_" + record, "value_" + record, "enabled");
+            }
+        }
+        minion.store();
+        return StreamHelper.readFully(storage);
+    }
+
+    private static byte[] transcode(byte[] input, Transcoding transcoding) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 2);
+        transcoding.run(input, output);
+        return output.toByteArray();
+    }
+
+    private static void report(String name, byte[] input, Transcoding transcoding)
+            throws Exception {
+        // Warm up
+        transcode(input, transcoding);
+        long start = System.nanoTime();
+        for (int c = 0; c < ITERATIONS; c++) {
+            transcode(input, transcoding);
+        }
+        double seconds = (System.nanoTime() - start) / 1000000000.0 / ITERATIONS;
+        System.out.println(String.format(Locale.US, "%-12s %9d bytes %8.2f ms %8.2f MB/s",
+                name, input.length, seconds * 1000, input.length / seconds / (1024 * 1024)));
+    }
+
+    private interface Transcoding {
+
+        void run(byte[] input, OutputStream output) throws Exception;
+
+    }
+
+}
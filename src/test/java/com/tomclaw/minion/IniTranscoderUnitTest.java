@@ -0,0 +1,176 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Properties;
+
+public class IniTranscoderUnitTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    @Test
+    public void iniToJson_groupsAndArrays_writesObjects() throws Exception {
+        String ini = "orphan=skipped\n[first]\nkey=value\narray=a,b,c\n[empty]\n[second]\nquote=\"x\\\"";
+
+        String json = transcode(ini, Format.INI_TO_JSON);
+
+        assertEquals("{\n\"first\":{\"key\":\"value\",\"array\":[\"a\",\"b\",\"c\"]},\n"
+                + "\"empty\":{},\n\"second\":{\"quote\":\"\\\"x\\\\\\\"\"}\n}", json);
+    }
+
+    @Test
+    public void iniToJson_noGroups_writesEmptyObject() throws Exception {
+        assertEquals("{}", transcode("# comment only", Format.INI_TO_JSON));
+    }
+
+    @Test
+    public void jsonToIni_roundTrip_loadsSameMinion() throws Exception {
+        String ini = "[first]\nkey=value\narray=a,b,c\n[second]\nunicode=привет";
+
+        String json = transcode(ini, Format.INI_TO_JSON);
+        Minion minion = load(transcode(json, Format.JSON_TO_INI));
+
+        assertEquals("value", minion.getValue("first", "key"));
+        assertArrayEquals(new String[]{"a", "b", "c"}, minion.getValues("first", "array"));
+        assertEquals("привет", minion.getValue("second", "unicode"));
+    }
+
+    @Test
+    public void jsonToIni_literals_writtenAsText() throws Exception {
+        String json = " { \"group\" : { \"number\" : -1.5e3 , \"flag\" : true , \"none\" : null ,"
+                + " \"escaped\" : \"\\u0041\\/\" , \"list\" : [ 1 , false ] , \"empty\" : [ ] } ,"
+                + " \"other\" : { } } ";
+
+        Minion minion = load(transcode(json, Format.JSON_TO_INI));
+
+        assertEquals("-1.5e3", minion.getValue("group", "number"));
+        assertEquals("true", minion.getValue("group", "flag"));
+        assertEquals("", minion.getValue("group", "none"));
+        assertEquals("A/", minion.getValue("group", "escaped"));
+        assertArrayEquals(new String[]{"1", "false"}, minion.getValues("group", "list"));
+        assertEquals(2, minion.getGroupsCount());
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void jsonToIni_nestedObject_throwsException() throws Exception {
+        transcode("{\"group\":{\"key\":{\"nested\":1}}}", Format.JSON_TO_INI);
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void jsonToIni_lineBreakInValue_throwsException() throws Exception {
+        transcode("{\"group\":{\"key\":\"a\\nb\"}}", Format.JSON_TO_INI);
+    }
+
+    @Test(expected = UnsupportedFormatException.class)
+    public void jsonToIni_trailingData_throwsException() throws Exception {
+        transcode("{}{}", Format.JSON_TO_INI);
+    }
+
+    @Test
+    public void iniToProperties_specialCharacters_loadedByProperties() throws Exception {
+        String ini = "[group]\nkey with spaces=value:with=marks#!\narray=a,b\n[other]\nunicode=éп";
+
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(
+                transcode(ini, Format.INI_TO_PROPERTIES).getBytes(ISO_8859_1)));
+
+        assertEquals(3, properties.size());
+        assertEquals("value:with=marks#!", properties.getProperty("group.key with spaces"));
+        assertEquals("a,b", properties.getProperty("group.array"));
+        assertEquals("éп", properties.getProperty("other.unicode"));
+    }
+
+    @Test
+    public void iniToJsonAndProperties_spacesAroundValues_trimmedAsOnLoad() throws Exception {
+        String ini = "[group]\nkey = value \narray = a , b ,c\n";
+        Minion minion = load(ini);
+
+        String json = transcode(ini, Format.INI_TO_JSON);
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(
+                transcode(ini, Format.INI_TO_PROPERTIES).getBytes(ISO_8859_1)));
+
+        assertEquals("{\n\"group\":{\"key\":\"value\",\"array\":[\"a\",\"b\",\"c\"]}\n}", json);
+        assertEquals(minion.getValue("group", "key"), properties.getProperty("group.key"));
+        assertEquals("a,b,c", properties.getProperty("group.array"));
+        assertArrayEquals(minion.getValues("group", "array"),
+                load(transcode(json, Format.JSON_TO_INI)).getValues("group", "array"));
+    }
+
+    @Test
+    public void propertiesToIni_propertiesSyntax_writesGroups() throws Exception {
+        String properties = "# comment\n"
+                + "! other comment\n"
+                + "group.first = one\n"
+                + "group.second:two\n"
+                + "group.third   three\n"
+                + "group.multi = a,\\\n"
+                + "    b\n"
+                + "group.escaped\\ key = \\u00e9\\t\n"
+                + "other.key=value\n"
+                + "plain=root\n";
+
+        Minion minion = load(transcode(properties, Format.PROPERTIES_TO_INI));
+
+        assertEquals("one", minion.getValue("group", "first"));
+        assertEquals("two", minion.getValue("group", "second"));
+        assertEquals("three", minion.getValue("group", "third"));
+        assertArrayEquals(new String[]{"a", "b"}, minion.getValues("group", "multi"));
+        assertEquals("é", minion.getValue("group", "escaped key"));
+        assertEquals("value", minion.getValue("other", "key"));
+        assertEquals("root", minion.getValue(Minion.DEFAULT_GROUP_NAME, "plain"));
+    }
+
+    @Test
+    public void propertiesToIni_roundTrip_loadsSameMinion() throws Exception {
+        String ini = "[group]\nkey=value\narray=a,b,c\n[other]\nunicode=éп";
+
+        String properties = transcode(ini, Format.INI_TO_PROPERTIES);
+        Minion minion = load(transcode(properties, Format.PROPERTIES_TO_INI));
+
+        assertEquals("value", minion.getValue("group", "key"));
+        assertArrayEquals(new String[]{"a", "b", "c"}, minion.getValues("group", "array"));
+        assertEquals("éп", minion.getValue("other", "unicode"));
+    }
+
+    private enum Format {
+        INI_TO_JSON, JSON_TO_INI, INI_TO_PROPERTIES, PROPERTIES_TO_INI
+    }
+
+    private static String transcode(String input, Format format) throws Exception {
+        Charset inputCharset = format == Format.PROPERTIES_TO_INI ? ISO_8859_1 : UTF8;
+        Charset outputCharset = format == Format.INI_TO_PROPERTIES ? ISO_8859_1 : UTF8;
+        InputStream inputStream = new ByteArrayInputStream(input.getBytes(inputCharset));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        switch (format) {
+            case INI_TO_JSON:
+                IniTranscoder.iniToJson(inputStream, outputStream);
+                break;
+            case JSON_TO_INI:
+                IniTranscoder.jsonToIni(inputStream, outputStream);
+                break;
+            case INI_TO_PROPERTIES:
+                IniTranscoder.iniToProperties(inputStream, outputStream);
+                break;
+            case PROPERTIES_TO_INI:
+                IniTranscoder.propertiesToIni(inputStream, outputStream);
+                break;
+        }
+        return new String(outputStream.toByteArray(), outputCharset);
+    }
+
+    private static Minion load(String ini) throws Exception {
+        return Minion.lets().load(StringStorage.create(ini)).sync();
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+
+import org.junit.Test;
+
+public class KeyHandleUnitTest {
+
+    @Test
+    public void getValue_existingRecord_returnsValue() throws Exception {
+        Minion minion = Minion.lets().sync();
+        minion.setValue("group", "key", "value");
+        KeyHandle handle = minion.handle("group", "key");
+
+        assertEquals("value", handle.getValue());
+        assertSame(minion.getGroup("group").getRecord("key"), handle.getRecord());
+    }
+
+    @Test
+    public void getValue_noRecord_returnsDefaultAndDoNotCreateGroup() throws Exception {
+        Minion minion = Minion.lets().sync();
+        KeyHandle handle = minion.handle("group", "key");
+
+        assertEquals("default", handle.getValue("default"));
+        assertEquals(42, handle.getInt(42));
+        assertNull(minion.getGroup("group"));
+    }
+
+    @Test
+    public void setValue_noRecord_createsRecord() throws Exception {
+        Minion minion = Minion.lets().sync();
+        KeyHandle handle = minion.handle("group", "key");
+
+        handle.setValue("1", "2");
+
+        assertArrayEquals(new String[]{"1", "2"}, minion.getValues("group", "key"));
+        assertEquals(1, handle.getInt(0));
+    }
+
+    @Test
+    public void getValue_valueChanged_returnsNewValue() throws Exception {
+        Minion minion = Minion.lets().sync();
+        IniRecord record = minion.setValue("group", "key", "old");
+        KeyHandle handle = minion.handle("group", "key");
+        handle.getValue();
+
+        record.setValue("new");
+
+        assertEquals("new", handle.getValue());
+    }
+
+    @Test
+    public void getValue_recordRemovedAndRecreated_resolvesAgain() throws Exception {
+        Minion minion = Minion.lets().sync();
+        minion.setValue("group", "key", "old");
+        KeyHandle handle = minion.handle("group", "key");
+        assertEquals("old", handle.getValue());
+
+        minion.removeRecord("group", "key");
+        assertNull(handle.getValue());
+
+        minion.setValue("group", "key", "new");
+        assertEquals("new", handle.getValue());
+
+        minion.removeGroup("group");
+        assertNull(handle.getRecord());
+    }
+
+    @Test
+    public void getValue_otherRecordsChanged_returnsSameRecord() throws Exception {
+        Minion minion = Minion.lets().sync();
+        IniRecord record = minion.setValue("group", "key", "value");
+        minion.getOrCreateGroup("other");
+        KeyHandle handle = minion.handle("group", "key");
+        assertSame(record, handle.getRecord());
+
+        minion.setValue("other", "key", "value");
+        minion.removeRecord("other", "key");
+        minion.setValue("group", "other", "value");
+
+        assertSame(record, handle.getRecord());
+        assertEquals("value", handle.getValue());
+    }
+
+    @Test
+    public void getValue_recordAddedToCachedGroup_resolvesAgain() throws Exception {
+        Minion minion = Minion.lets().sync();
+        minion.setValue("group", "other", "value");
+        KeyHandle handle = minion.handle("group", "key");
+        assertNull(handle.getRecord());
+
+        minion.setValue("other", "key", "other");
+        minion.setValue("group", "key", "value");
+
+        assertEquals("value", handle.getValue());
+    }
+
+    @Test
+    public void getValue_afterReload_resolvesAgain() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion writer = Minion.lets().store(storage).sync();
+        writer.setValue("group", "key", "old");
+        writer.store();
+        Minion minion = Minion.lets().load(storage).sync();
+        KeyHandle handle = minion.handle("group", "key");
+        assertEquals("old", handle.getValue());
+
+        writer.getGroup("group").getRecord("key").setValue("new");
+        writer.store();
+        minion.refresh();
+
+        assertEquals("new", handle.getValue());
+    }
+
+}
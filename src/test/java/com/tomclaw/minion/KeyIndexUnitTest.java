@@ -0,0 +1,104 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+import java.util.Set;
+
+public class KeyIndexUnitTest {
+
+    @Test
+    public void findKeys_returnsKeysWithPrefixSorted() throws Exception {
+        Minion minion = createMinion();
+        minion.setValue("group", "feature.b.enabled", "true");
+        minion.setValue("group", "feature.a.enabled", "false");
+        minion.setValue("group", "featured", "true");
+        minion.setValue("group", "other", "value");
+
+        Set<String> keys = minion.findKeys("group", "feature.");
+
+        assertArrayEquals(new String[]{"feature.a.enabled", "feature.b.enabled"}, keys.toArray());
+    }
+
+    @Test
+    public void findKeys_returnsKeysInRange() throws Exception {
+        Minion minion = createMinion();
+        minion.setValue("group", "a", "1");
+        minion.setValue("group", "b", "2");
+        minion.setValue("group", "c", "3");
+
+        Set<String> keys = minion.findKeys("group", "a", "c");
+
+        assertArrayEquals(new String[]{"a", "b"}, keys.toArray());
+    }
+
+    @Test
+    public void findKeys_noSuchGroup_returnsEmpty() throws Exception {
+        Minion minion = createMinion();
+
+        assertTrue(minion.findKeys("group", "feature.").isEmpty());
+    }
+
+    @Test
+    public void groupsWithPrefix_returnsGroupsSorted() throws Exception {
+        Minion minion = createMinion();
+        minion.getOrCreateGroup("user_2");
+        minion.getOrCreateGroup("settings");
+        minion.getOrCreateGroup("user_1");
+
+        Set<String> groups = minion.groupsWithPrefix("user_");
+
+        assertArrayEquals(new String[]{"user_1", "user_2"}, groups.toArray());
+    }
+
+    @Test
+    public void index_consistentWithRemovals() throws Exception {
+        Minion minion = createMinion();
+        minion.setValue("user_1", "feature.a", "1");
+        minion.setValue("user_1", "feature.b", "2");
+        minion.setValue("user_2", "feature.a", "3");
+        Set<String> keys = minion.findKeys("user_1", "feature.");
+
+        minion.removeRecord("user_1", "feature.a");
+        minion.removeGroup("user_2");
+
+        assertArrayEquals(new String[]{"feature.b"}, keys.toArray());
+        assertArrayEquals(new String[]{"user_1"}, minion.groupsWithPrefix("user_").toArray());
+
+        minion.clear();
+
+        assertTrue(minion.groupsWithPrefix("").isEmpty());
+    }
+
+    @Test
+    public void index_builtOnLoad() throws Exception {
+        String data = "[user_1]\nfeature.a=1\nfeature.b=2\n[user_2]\nother=3";
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(data))
+                .and()
+                .indexKeys()
+                .sync();
+
+        assertArrayEquals(new String[]{"user_1", "user_2"}, minion.groupsWithPrefix("user_").toArray());
+        assertArrayEquals(new String[]{"feature.a", "feature.b"},
+                minion.findKeys("user_1", "feature.").toArray());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void findKeys_indexNotEnabled_throwException() {
+        Minion minion = Minion.lets().buildSimple();
+
+        minion.findKeys("group", "feature.");
+    }
+
+    private Minion createMinion() throws Exception {
+        return Minion.lets()
+                .indexKeys()
+                .sync();
+    }
+
+}
@@ -2,12 +2,17 @@ package com.tomclaw.minion;
 
 import static com.tomclaw.minion.StreamHelper.readFully;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import com.tomclaw.minion.storage.MemoryStorage;
 
 import org.junit.Test;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Created by solkin on 01.08.17.
@@ -46,6 +51,56 @@ public class MemoryStorageUnitTest {
         assertArrayEquals(newData, readData);
     }
 
+    @Test
+    public void readWhileWriting_returnsPreviousData() throws Exception {
+        byte[] oldData = createRandomData();
+        MemoryStorage storage = createMemoryStorage();
+        OutputStream output = storage.write();
+        output.write(oldData);
+        output.close();
+
+        output = storage.write();
+        output.write("new data".getBytes());
+        byte[] readData = readFully(storage);
+        output.close();
+
+        assertArrayEquals(oldData, readData);
+    }
+
+    @Test
+    public void getBuffer_returnsReadOnlyView() throws Exception {
+        byte[] writeData = createRandomData();
+        MemoryStorage storage = createMemoryStorage();
+        OutputStream output = storage.write();
+        output.write(writeData);
+        output.close();
+
+        ByteBuffer buffer = storage.getBuffer();
+
+        assertTrue(buffer.isReadOnly());
+        assertEquals(writeData.length, buffer.remaining());
+        byte[] readData = new byte[buffer.remaining()];
+        buffer.get(readData);
+        assertArrayEquals(writeData, readData);
+    }
+
+    @Test
+    public void writeAfterClose_throwsAndKeepsData() throws Exception {
+        byte[] writeData = createRandomData();
+        MemoryStorage storage = createMemoryStorage();
+        OutputStream output = storage.write();
+        output.write(writeData);
+        output.close();
+
+        try {
+            output.write(writeData);
+            fail();
+        } catch (IOException ignored) {
+        }
+
+        assertArrayEquals(writeData, readFully(storage));
+    }
+
     private byte[] createRandomData() {
         return "sample data".getBytes();
     }
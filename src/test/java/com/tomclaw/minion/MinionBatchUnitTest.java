@@ -0,0 +1,265 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.tomclaw.minion.storage.AsyncWritable;
+import com.tomclaw.minion.storage.CompletionCallback;
+import com.tomclaw.minion.storage.FileStorage;
+import com.tomclaw.minion.storage.Fingerprint;
+import com.tomclaw.minion.storage.Fingerprintable;
+import com.tomclaw.minion.storage.MemoryStorage;
+import com.tomclaw.minion.storage.Writable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MinionBatchUnitTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("minion", "batch");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void commit_severalFiles_allStoredAndReported() throws Exception {
+        MinionBatch batch = MinionBatch.create();
+        RecordingCallback[] callbacks = new RecordingCallback[4];
+        Minion[] minions = new Minion[callbacks.length];
+        for (int c = 0; c < callbacks.length; c++) {
+            minions[c] = Minion.lets()
+                    .store(FileStorage.create(new File(directory, "file" + c + ".ini")))
+                    .sync();
+            minions[c].setValue("group", "key", "value" + c);
+            callbacks[c] = new RecordingCallback();
+            batch.add(minions[c], callbacks[c]);
+        }
+
+        batch.commit();
+
+        for (int c = 0; c < callbacks.length; c++) {
+            assertSame(minions[c], callbacks[c].ready);
+            assertNull(callbacks[c].failure);
+            Minion loaded = Minion.lets()
+                    .load(FileStorage.create(new File(directory, "file" + c + ".ini")))
+                    .sync();
+            assertEquals("value" + c, loaded.getValue("group", "key"));
+        }
+        assertEquals(callbacks.length, directory.listFiles().length);
+        assertEquals(0, batch.size());
+    }
+
+    @Test
+    public void commit_dataNotChanged_skipsWrite() throws Exception {
+        CountingWritable writable = new CountingWritable();
+        Minion minion = Minion.lets().store(writable).sync();
+        minion.setValue("group", "key", "value");
+        MinionBatch.create().add(minion).commit();
+
+        RecordingCallback callback = new RecordingCallback();
+        MinionBatch.create().add(minion, callback).commit();
+
+        assertEquals(1, writable.writes.get());
+        assertSame(minion, callback.ready);
+    }
+
+    @Test
+    public void commit_oneWritableFails_othersStored() throws Exception {
+        File file = new File(directory, "file.ini");
+        Minion stored = Minion.lets().store(FileStorage.create(file)).sync();
+        stored.setValue("group", "key", "value");
+        Minion failed = Minion.lets().store(new FailingWritable()).sync();
+        failed.setValue("group", "key", "value");
+        RecordingCallback storedCallback = new RecordingCallback();
+        RecordingCallback failedCallback = new RecordingCallback();
+
+        MinionBatch.create()
+                .add(stored, storedCallback)
+                .add(failed, failedCallback)
+                .commit();
+
+        assertSame(stored, storedCallback.ready);
+        assertNull(failedCallback.ready);
+        assertNotNull(failedCallback.failure);
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void commit_directoryMissing_failsWithoutTempFiles() throws Exception {
+        File file = new File(new File(directory, "missing"), "file.ini");
+        Minion minion = Minion.lets().store(FileStorage.create(file)).sync();
+        minion.setValue("group", "key", "value");
+        RecordingCallback callback = new RecordingCallback();
+
+        MinionBatch.create().add(minion, callback).commit();
+
+        assertNotNull(callback.failure);
+        assertFalse(file.exists());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void commit_memoryStorage_writtenDirectly() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion minion = Minion.lets().store(storage).sync();
+        minion.setValue("group", "key", "value");
+
+        MinionBatch.create().add(minion).commit();
+
+        Minion loaded = Minion.lets().load(storage).sync();
+        assertEquals("value", loaded.getValue("group", "key"));
+    }
+
+    @Test(timeout = 10000)
+    public void commit_asyncWriteInProgress_waitsAndWritesLatestData() throws Exception {
+        final GatedWritable writable = new GatedWritable();
+        final Minion minion = Minion.lets()
+                .store(writable)
+                .scheduler(new MinionScheduler(4, MinionScheduler.OverflowPolicy.BLOCK))
+                .async(new EmptyResultCallback());
+        assertTrue(minion.awaitLoaded(5, TimeUnit.SECONDS));
+        minion.setValue("group", "key", "old");
+        minion.store();
+        writable.started.await();
+        minion.getGroup("group").getRecord("key").setValue("new");
+        Thread committer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                MinionBatch.create().add(minion).commit();
+            }
+        });
+
+        committer.start();
+        committer.join(200);
+        assertTrue(committer.isAlive());
+        writable.release.countDown();
+        committer.join();
+
+        Minion loaded = Minion.lets().load(writable.storage).sync();
+        assertEquals("new", loaded.getValue("group", "key"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_sameFile_throwsException() {
+        File file = new File(directory, "file.ini");
+        MinionBatch.create()
+                .add(Minion.lets().store(FileStorage.create(file)).buildSimple())
+                .add(Minion.lets().store(FileStorage.create(file.getAbsoluteFile())).buildSimple());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_noWritable_throwsException() {
+        MinionBatch.create().add(Minion.lets().buildSimple());
+    }
+
+    private static class RecordingCallback implements ResultCallback {
+
+        Minion ready;
+        Exception failure;
+
+        @Override
+        public void onReady(Minion minion) {
+            ready = minion;
+        }
+
+        @Override
+        public void onFailure(Exception ex) {
+            failure = ex;
+        }
+
+    }
+
+    private static class CountingWritable implements Writable, Fingerprintable {
+
+        final MemoryStorage storage = MemoryStorage.create();
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public OutputStream write() throws IOException {
+            writes.incrementAndGet();
+            return storage.write();
+        }
+
+        @Override
+        public Fingerprint getFingerprint() throws IOException {
+            return new Fingerprint(1, 1);
+        }
+
+    }
+
+    /**
+     * Writable, that finishes asynchronous write only when released.
+     */
+    private static class GatedWritable implements AsyncWritable {
+
+        final MemoryStorage storage = MemoryStorage.create();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public OutputStream write() throws IOException {
+            return storage.write();
+        }
+
+        @Override
+        public void writeAsync(@NonNull final ByteBuffer data,
+                               @NonNull final CompletionCallback<Void> callback) {
+            started.countDown();
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                        OutputStream outputStream = storage.write();
+                        outputStream.write(data.array(), data.position(), data.remaining());
+                        outputStream.close();
+                        callback.onComplete(null);
+                    } catch (Exception ex) {
+                        callback.onFailure(ex);
+                    }
+                }
+            }).start();
+        }
+
+    }
+
+    private static class FailingWritable implements Writable {
+
+        @Override
+        public OutputStream write() throws IOException {
+            throw new IOException("Write failed");
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MinionDiffUnitTest {
+
+    @Test
+    public void diff_equalMinions_emptyPatch() throws Exception {
+        Minion first = load("[a]\nkey=1\nother=2, 3\n[b]\nkey=4");
+        Minion second = load("[b]\nkey=4\n[a]\nother=2, 3\nkey=1");
+
+        assertTrue(first.diff(second).isEmpty());
+    }
+
+    @Test
+    public void diff_changedMinions_compactPatch() throws Exception {
+        Minion first = load("[same]\nkey=1\n[changed]\nkept=1\nchanged=1\nremoved=1\n[removed]\nkey=1");
+        Minion second = load("[same]\nkey=1\n[changed]\nkept=1\nchanged=2\nadded=1\n[added]\nkey=1");
+
+        MinionPatch patch = first.diff(second);
+
+        assertEquals(listOf(
+                "REMOVE_RECORD changed.removed",
+                "SET_RECORD changed.changed=[2]",
+                "SET_RECORD changed.added=[1]",
+                "REMOVE_GROUP removed",
+                "ADD_GROUP added",
+                "SET_RECORD added.key=[1]"
+        ), toStrings(patch));
+    }
+
+    @Test
+    public void apply_patch_transformsIntoTarget() throws Exception {
+        Minion first = load("[same]\nkey=1\n[changed]\nkept=1\nchanged=1\nremoved=1\n[removed]\nkey=1");
+        Minion second = load("[same]\nkey=1\n[changed]\nkept=1\nchanged=2, 3\nadded=1\n[added]\nkey=1");
+
+        first.apply(first.diff(second));
+
+        assertTrue(first.diff(second).isEmpty());
+        assertTrue(second.diff(first).isEmpty());
+    }
+
+    @Test
+    public void contentHash_recalculatedAfterChange() throws Exception {
+        Minion minion = load("[group]\nkey=1");
+        IniGroup group = minion.getGroup("group");
+        long hash = group.getContentHash();
+
+        group.getRecord("key").setValue("2");
+        assertNotEquals(hash, group.getContentHash());
+
+        group.getRecord("key").setValue("1");
+        assertEquals(hash, group.getContentHash());
+    }
+
+    private Minion load(String data) throws Exception {
+        return Minion.lets()
+                .load(StringStorage.create(data))
+                .sync();
+    }
+
+    private List<String> toStrings(MinionPatch patch) {
+        List<String> strings = new ArrayList<>();
+        for (MinionPatch.Change change : patch.getChanges()) {
+            strings.add(change.toString());
+        }
+        return strings;
+    }
+
+    private List<String> listOf(String... strings) {
+        List<String> list = new ArrayList<>();
+        for (String string : strings) {
+            list.add(string);
+        }
+        return list;
+    }
+
+}
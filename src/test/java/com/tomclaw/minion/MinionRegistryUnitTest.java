@@ -0,0 +1,124 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.tomclaw.minion.storage.Readable;
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MinionRegistryUnitTest {
+
+    @Test
+    public void acquire_sameFile_returnsSameInstance() throws Exception {
+        File file = File.createTempFile("minion", ".ini");
+        try {
+            MinionRegistry registry = new MinionRegistry(MinionRegistry.DEFAULT_IDLE_BUDGET);
+
+            Minion first = registry.acquire(file);
+            Minion second = registry.acquire(new File(file.getParentFile(), "./" + file.getName()));
+
+            assertSame(first, second);
+            assertEquals(1, registry.getSize());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void acquire_concurrently_loadsOnce() throws Exception {
+        final MinionRegistry registry = new MinionRegistry(MinionRegistry.DEFAULT_IDLE_BUDGET);
+        final CountingReadable readable = new CountingReadable("[group]\nkey=value");
+        final CountDownLatch start = new CountDownLatch(1);
+        final Minion[] results = new Minion[8];
+        Thread[] threads = new Thread[results.length];
+        for (int c = 0; c < threads.length; c++) {
+            final int index = c;
+            threads[c] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        results[index] = registry.acquire("key", Minion.lets().load(readable));
+                    } catch (Exception ignored) {
+                    }
+                }
+            });
+            threads[c].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, readable.reads.get());
+        for (Minion minion : results) {
+            assertSame(results[0], minion);
+        }
+        assertEquals("value", results[0].getValue("group", "key"));
+    }
+
+    @Test
+    public void release_idleWithinBudget_reused() throws Exception {
+        MinionRegistry registry = new MinionRegistry(MinionRegistry.DEFAULT_IDLE_BUDGET);
+        CountingReadable readable = new CountingReadable("[group]\nkey=value");
+        Minion minion = registry.acquire("key", Minion.lets().load(readable));
+
+        registry.release(minion);
+
+        assertEquals(1, registry.getIdleCount());
+        assertSame(minion, registry.acquire("key", Minion.lets().load(readable)));
+        assertEquals(0, registry.getIdleCount());
+        assertEquals(1, readable.reads.get());
+    }
+
+    @Test
+    public void release_idleOverBudget_evicted() throws Exception {
+        MinionRegistry registry = new MinionRegistry(0);
+        CountingReadable readable = new CountingReadable("[group]\nkey=value");
+        Minion minion = registry.acquire("key", Minion.lets().load(readable));
+        registry.acquire("key", Minion.lets().load(readable));
+
+        registry.release(minion);
+        assertEquals(1, registry.getSize());
+        registry.release(minion);
+
+        assertEquals(0, registry.getSize());
+        assertNotSame(minion, registry.acquire("key", Minion.lets().load(readable)));
+        assertEquals(2, readable.reads.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void release_notAcquired_throwException() {
+        MinionRegistry registry = new MinionRegistry(MinionRegistry.DEFAULT_IDLE_BUDGET);
+
+        registry.release(Minion.lets().buildSimple());
+    }
+
+    private static class CountingReadable implements Readable {
+
+        private final StringStorage storage;
+        private final AtomicInteger reads = new AtomicInteger();
+
+        CountingReadable(String data) {
+            this.storage = StringStorage.create(data);
+        }
+
+        @Override
+        public InputStream read() throws IOException {
+            reads.incrementAndGet();
+            return storage.read();
+        }
+
+    }
+
+}
@@ -0,0 +1,229 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+import com.tomclaw.minion.storage.Readable;
+import com.tomclaw.minion.storage.Writable;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MinionSchedulerUnitTest {
+
+    @Test(timeout = 10000)
+    public void load_pendingStoreOfOtherMinion_loadIsExecutedFirst() throws Exception {
+        MinionScheduler scheduler = new MinionScheduler(16, MinionScheduler.OverflowPolicy.BLOCK);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        Minion stored = create(scheduler, MemoryStorage.create());
+        CountDownLatch release = block(scheduler);
+        stored.setValue("group", "key", "value");
+        final CountDownLatch done = new CountDownLatch(2);
+
+        stored.store(new RecordingCallback("store", order, done));
+        Minion.lets()
+                .load(MemoryStorage.create())
+                .scheduler(scheduler)
+                .async(new RecordingCallback("load", order, done));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("load", "store"), order);
+    }
+
+    @Test(timeout = 10000)
+    public void refresh_pendingStoreOfSameMinion_storeIsExecutedFirst() throws Exception {
+        MinionScheduler scheduler = new MinionScheduler(16, MinionScheduler.OverflowPolicy.BLOCK);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        MemoryStorage storage = MemoryStorage.create();
+        Minion minion = create(scheduler, storage);
+        CountDownLatch release = block(scheduler);
+        final CountDownLatch done = new CountDownLatch(2);
+
+        minion.store(new RecordingCallback("store", order, done));
+        minion.refresh(new RecordingCallback("refresh", order, done));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("store", "refresh"), order);
+    }
+
+    @Test(timeout = 10000)
+    public void store_pendingStore_mergedAndWrittenOnce() throws Exception {
+        MinionScheduler scheduler = new MinionScheduler(16, MinionScheduler.OverflowPolicy.BLOCK);
+        CountingWritable writable = new CountingWritable();
+        Minion minion = create(scheduler, writable);
+        CountDownLatch release = block(scheduler);
+        final CountDownLatch done = new CountDownLatch(3);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        for (int c = 0; c < 3; c++) {
+            minion.setValue("group", "key" + c, "value");
+            minion.store(new RecordingCallback("store", order, done));
+        }
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, writable.writes.get());
+        assertEquals(2, scheduler.getMergedCount());
+    }
+
+    @Test(timeout = 10000)
+    public void store_queueFullWithRejectPolicy_callbackReceivesFailure() throws Exception {
+        MinionScheduler scheduler = new MinionScheduler(1, MinionScheduler.OverflowPolicy.REJECT);
+        Minion first = create(scheduler, MemoryStorage.create());
+        Minion second = create(scheduler, MemoryStorage.create());
+        CountDownLatch release = block(scheduler);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        first.store();
+        second.store(new EmptyResultCallback() {
+            @Override
+            public void onFailure(Exception ex) {
+                failure.set(ex);
+            }
+        });
+        release.countDown();
+
+        assertTrue(failure.get() instanceof RejectedExecutionException);
+        assertEquals(1, scheduler.getRejectedCount());
+    }
+
+    @Test(timeout = 10000)
+    public void store_queueFullWithCallerRunsPolicy_executedOnCallerThread() throws Exception {
+        MinionScheduler scheduler = new MinionScheduler(1, MinionScheduler.OverflowPolicy.CALLER_RUNS);
+        Minion first = create(scheduler, MemoryStorage.create());
+        Minion second = create(scheduler, MemoryStorage.create());
+        CountDownLatch release = block(scheduler);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+
+        first.store();
+        second.store(new EmptyResultCallback() {
+            @Override
+            public void onReady(Minion minion) {
+                thread.set(Thread.currentThread());
+            }
+        });
+        release.countDown();
+
+        assertSame(Thread.currentThread(), thread.get());
+    }
+
+    @Test(timeout = 10000)
+    public void getQueueDepth_pendingTasks_returnsCount() throws Exception {
+        MinionScheduler scheduler = new MinionScheduler(16, MinionScheduler.OverflowPolicy.BLOCK);
+        Minion first = create(scheduler, MemoryStorage.create());
+        Minion second = create(scheduler, MemoryStorage.create());
+        CountDownLatch release = block(scheduler);
+
+        first.store();
+        second.store();
+        second.store();
+
+        assertEquals(2, scheduler.getQueueDepth());
+        release.countDown();
+        while (scheduler.getQueueDepth() > 0) {
+            Thread.sleep(10);
+        }
+        assertTrue(scheduler.getMaxWaitNanos() > 0);
+    }
+
+    /**
+     * Creates asynchronous Minion and waits for it to be loaded.
+     */
+    private static Minion create(MinionScheduler scheduler, Writable writable) throws Exception {
+        final CountDownLatch loaded = new CountDownLatch(1);
+        Minion.Builder builder = Minion.lets().store(writable).scheduler(scheduler);
+        if (writable instanceof Readable) {
+            builder.load((Readable) writable);
+        }
+        Minion minion = builder.async(new EmptyResultCallback() {
+            @Override
+            public void onReady(Minion minion) {
+                loaded.countDown();
+            }
+        });
+        loaded.await();
+        return minion;
+    }
+
+    /**
+     * Occupies worker of the scheduler until returned latch is released.
+     */
+    private static CountDownLatch block(MinionScheduler scheduler) throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Minion.lets()
+                .load(new Readable() {
+                    @Override
+                    public InputStream read() throws IOException {
+                        started.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException ex) {
+                            throw new IOException(ex);
+                        }
+                        return new ByteArrayInputStream(new byte[0]);
+                    }
+                })
+                .scheduler(scheduler)
+                .async(new EmptyResultCallback());
+        started.await();
+        return release;
+    }
+
+    private static class RecordingCallback implements ResultCallback {
+
+        private final String name;
+        private final List<String> order;
+        private final CountDownLatch done;
+
+        RecordingCallback(String name, List<String> order, CountDownLatch done) {
+            this.name = name;
+            this.order = order;
+            this.done = done;
+        }
+
+        @Override
+        public void onReady(Minion minion) {
+            order.add(name);
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception ex) {
+            order.add(name + " failed");
+            done.countDown();
+        }
+
+    }
+
+    private static class CountingWritable implements Writable {
+
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public OutputStream write() {
+            writes.incrementAndGet();
+            return new ByteArrayOutputStream();
+        }
+
+    }
+
+}
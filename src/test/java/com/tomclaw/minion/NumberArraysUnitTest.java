@@ -0,0 +1,102 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+public class NumberArraysUnitTest {
+
+    @Test
+    public void getIntArray_rawValue_parsesNumbers() {
+        IniRecord record = new IniRecord("ids", " 1, -2,3 ,2147483647,", false);
+
+        assertArrayEquals(new int[]{1, -2, 3, Integer.MAX_VALUE}, record.getIntArray());
+        assertArrayEquals(new String[]{"1", "-2", "3", "2147483647"}, record.getValues());
+    }
+
+    @Test
+    public void getLongArray_rawValueWithComment_parsesNumbers() {
+        IniRecord record = new IniRecord("ids", "1, 9223372036854775807 ; comment", false);
+
+        assertArrayEquals(new long[]{1, Long.MAX_VALUE}, record.getLongArray());
+    }
+
+    @Test
+    public void getDoubleArray_rawValue_parsesNumbers() {
+        IniRecord record = new IniRecord("ratios", "0.5, -1e3, 2", false);
+
+        double[] result = record.getDoubleArray();
+
+        assertEquals(3, result.length);
+        assertEquals(0.5, result[0], 0);
+        assertEquals(-1000, result[1], 0);
+        assertEquals(2, result[2], 0);
+        assertArrayEquals(new String[]{"0.5", "-1e3", "2"}, record.getValues());
+    }
+
+    @Test
+    public void getIntArray_nonCanonicalRawValue_keepsValues() {
+        IniRecord record = new IniRecord("ids", "007,+1", false);
+
+        assertArrayEquals(new int[]{7, 1}, record.getIntArray());
+        assertArrayEquals(new String[]{"007", "+1"}, record.getValues());
+    }
+
+    @Test
+    public void getIntArray_blankValue_returnsEmptyArray() {
+        assertEquals(0, new IniRecord("ids", "", false).getIntArray().length);
+        assertEquals(0, new IniRecord("ids", "").getIntArray().length);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void getIntArray_overflow_throwsException() {
+        new IniRecord("ids", "1,2147483648", false).getIntArray();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void getLongArray_notNumber_throwsException() {
+        new IniRecord("ids", "1,a", false).getLongArray();
+    }
+
+    @Test
+    public void getIntArray_stringValues_parsesNumbers() {
+        IniRecord record = new IniRecord("ids", "1", " 2 ");
+
+        assertArrayEquals(new int[]{1, 2}, record.getIntArray());
+    }
+
+    @Test
+    public void setIntArray_storeAndLoad_returnsSameNumbers() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion minion = Minion.lets().store(storage).sync();
+        minion.setIntArray("group", "ints", 1, 2, 3);
+        minion.setLongArray("group", "longs", Long.MIN_VALUE);
+        minion.setDoubleArray("group", "doubles", 0.25, -4);
+        minion.setIntArray("group", "empty");
+        minion.store();
+
+        Minion loaded = Minion.lets().load(storage).sync();
+
+        assertArrayEquals(new int[]{1, 2, 3}, loaded.getIntArray("group", "ints", null));
+        assertArrayEquals(new long[]{Long.MIN_VALUE}, loaded.getLongArray("group", "longs", null));
+        assertArrayEquals(new double[]{0.25, -4}, loaded.getDoubleArray("group", "doubles", null), 0);
+        assertArrayEquals(new int[0], loaded.getIntArray("group", "empty", null));
+        assertArrayEquals(new int[]{42}, loaded.getIntArray("group", "missing", new int[]{42}));
+    }
+
+    @Test
+    public void setIntArray_existingRecord_replacesValue() throws Exception {
+        Minion minion = Minion.lets()
+                .load(StringStorage.create("[group]\nids=1,2"))
+                .sync();
+
+        minion.setIntArray("group", "ids", 3);
+
+        assertArrayEquals(new String[]{"3"}, minion.getValues("group", "ids"));
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+public class OffHeapValuesUnitTest {
+
+    @Test
+    public void load_offHeapValues_valuesEquals() throws Exception {
+        String data = "[group]\nkey=value\narray=first, второй, 😀\nempty=";
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(data))
+                .and()
+                .offHeapValues(0)
+                .sync();
+
+        assertEquals("value", minion.getValue("group", "key"));
+        assertArrayEquals(new String[]{"first", "второй", "😀"}, minion.getValues("group", "array"));
+        assertArrayEquals(new String[]{""}, minion.getValues("group", "empty"));
+    }
+
+    @Test
+    public void setValue_offHeapValues_valueReplaced() throws Exception {
+        Minion minion = Minion.lets()
+                .offHeapValues()
+                .sync();
+        IniRecord record = minion.setValue("group", "key", "old");
+        minion.getValue("group", "key");
+
+        record.setValue(" new ", "values");
+
+        assertArrayEquals(new String[]{"new", "values"}, minion.getValues("group", "key"));
+        assertEquals(new IniRecord("key", "new", "values"), record);
+    }
+
+    @Test
+    public void setValue_valueLargerThanChunk_storedCorrectly() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int c = 0; c < 2 * 1024 * 1024; c++) {
+            builder.append((char) ('a' + c % 26));
+        }
+        String value = builder.toString();
+        Minion minion = Minion.lets()
+                .offHeapValues()
+                .sync();
+
+        minion.setValue("group", "large", value);
+        minion.setValue("group", "small", "value");
+
+        assertEquals(value, minion.getValue("group", "large"));
+        assertEquals("value", minion.getValue("group", "small"));
+    }
+
+    @Test(timeout = 60000)
+    public void setValue_overwrittenInLoop_spaceReused() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int c = 0; c < 600 * 1024; c++) {
+            builder.append((char) ('a' + c % 26));
+        }
+        String value = builder.toString();
+        Minion minion = Minion.lets()
+                .offHeapValues(0)
+                .sync();
+        IniRecord record = minion.setValue("group", "key", value);
+
+        // Every value takes chunk of its own, so arena overflows without reuse.
+        for (int c = 0; c < 2100; c++) {
+            record.setValue(value + c);
+            minion.setValue("group", "removed_" + c, value);
+            minion.removeRecord("group", "removed_" + c);
+        }
+
+        assertEquals(value + 2099, minion.getValue("group", "key"));
+    }
+
+    @Test
+    public void removeRecord_offHeapValues_removedRecordKeepsValue() throws Exception {
+        Minion minion = Minion.lets()
+                .offHeapValues(0)
+                .sync();
+        minion.setValue("group", "key", "value", "other");
+        minion.setValue("second", "key", "second");
+
+        IniRecord removed = minion.removeRecord("group", "key");
+        IniGroup group = minion.removeGroup("second");
+        minion.setValue("group", "key", "replaced");
+
+        assertArrayEquals(new String[]{"value", "other"}, removed.getValues());
+        assertEquals("second", group.getRecord("key").getValue());
+        assertEquals("replaced", minion.getValue("group", "key"));
+    }
+
+    @Test
+    public void free_sameSizeValue_blockReused() {
+        ValueArena arena = new ValueArena(0);
+        int first = arena.put(new String[]{"value"});
+        int second = arena.put(new String[]{"other"});
+
+        arena.free(first);
+        int third = arena.put(new String[]{"third"});
+
+        assertEquals(first, third);
+        assertArrayEquals(new String[]{"other"}, arena.get(second));
+        assertArrayEquals(new String[]{"third"}, arena.get(third));
+        arena.free(second);
+        arena.free(third);
+        assertEquals(0, arena.getSize());
+    }
+
+    @Test
+    public void storeAndLoad_offHeapValues_roundTrip() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion minion = Minion.lets()
+                .store(storage)
+                .and()
+                .offHeapValues()
+                .sync();
+        for (int c = 0; c < 1000; c++) {
+            minion.setValue("group_" + c % 10, "key_" + c, "value_" + c, "другое_" + c);
+        }
+        minion.store();
+
+        Minion loaded = Minion.lets()
+                .load(storage)
+                .sync();
+
+        assertEquals(10, loaded.getGroupsCount());
+        assertArrayEquals(new String[]{"value_999", "другое_999"}, loaded.getValues("group_9", "key_999"));
+    }
+
+    @Test
+    public void estimatedSize_offHeapValues_smallerThanOnHeap() throws Exception {
+        Minion onHeap = Minion.lets().sync();
+        Minion offHeap = Minion.lets().offHeapValues().sync();
+        for (int c = 0; c < 100; c++) {
+            onHeap.setValue("group", "key_" + c, "some long enough value " + c);
+            offHeap.setValue("group", "key_" + c, "some long enough value " + c);
+        }
+
+        assertTrue(offHeap.getGroup("group").estimateFootprint()
+                < onHeap.getGroup("group").estimateFootprint());
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * Compares consistent multi-key reads against plain reads for read-mostly workload.
+ */
+@Ignore("Benchmark prints measurements, it is run manually")
+public class OptimisticReadBenchmark {
+
+    private static final int READS = 1000000;
+    private static final int ITERATIONS = 5;
+
+    @Test
+    public void benchmarkRead() throws Exception {
+        Minion minion = Minion.lets().sync();
+        minion.setValue("server", "host", "localhost");
+        minion.setValue("server", "port", "8080");
+        minion.setValue("server", "tls", "true");
+        Minion.Reader<String> reader = new Minion.Reader<String>() {
+            @Override
+            public String read(Minion minion) {
+                return readAll(minion);
+            }
+        };
+
+        long plainTime = 0;
+        long optimisticTime = 0;
+        for (int c = 0; c <= ITERATIONS; c++) {
+            long start = System.nanoTime();
+            int length = 0;
+            for (int i = 0; i < READS; i++) {
+                length += readAll(minion).length();
+            }
+            long plain = System.nanoTime() - start;
+            start = System.nanoTime();
+            int optimisticLength = 0;
+            for (int i = 0; i < READS; i++) {
+                optimisticLength += minion.read(reader).length();
+            }
+            long optimistic = System.nanoTime() - start;
+            assertEquals(length, optimisticLength);
+            // First iteration is warm up.
+            if (c > 0) {
+                plainTime += plain;
+                optimisticTime += optimistic;
+            }
+        }
+        System.out.println(String.format(Locale.US, "plain      %6.1f ns/read",
+                (double) plainTime / ITERATIONS / READS));
+        System.out.println(String.format(Locale.US, "optimistic %6.1f ns/read",
+                (double) optimisticTime / ITERATIONS / READS));
+    }
+
+    private static String readAll(Minion minion) {
+        return minion.getValue("server", "host")
+                + minion.getValue("server", "port")
+                + minion.getValue("server", "tls");
+    }
+
+}
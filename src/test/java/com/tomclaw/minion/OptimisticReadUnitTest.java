@@ -0,0 +1,151 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class OptimisticReadUnitTest {
+
+    @Test
+    public void validate_noMutations_returnsTrue() throws Exception {
+        Minion minion = Minion.lets().sync();
+        minion.setValue("server", "host", "localhost");
+
+        long stamp = minion.tryOptimisticRead();
+        minion.getValue("server", "host");
+
+        assertTrue(minion.validate(stamp));
+    }
+
+    @Test
+    public void validate_valueChanged_returnsFalse() throws Exception {
+        Minion minion = Minion.lets().sync();
+        IniRecord record = minion.setValue("server", "host", "localhost");
+
+        long stamp = minion.tryOptimisticRead();
+        record.setValue("example.com");
+
+        assertFalse(minion.validate(stamp));
+    }
+
+    @Test
+    public void tryOptimisticRead_insideWrite_returnsZero() throws Exception {
+        final Minion minion = Minion.lets().sync();
+        final AtomicLong stamp = new AtomicLong(-1);
+
+        minion.write(new Runnable() {
+            @Override
+            public void run() {
+                minion.setValue("server", "host", "localhost");
+                stamp.set(minion.tryOptimisticRead());
+            }
+        });
+
+        assertEquals(0, stamp.get());
+        assertFalse(minion.validate(0));
+        assertTrue(minion.tryOptimisticRead() != 0);
+    }
+
+    @Test
+    public void read_insideWrite_returnsValue() throws Exception {
+        final Minion minion = Minion.lets().sync();
+        final String[] value = new String[1];
+
+        minion.write(new Runnable() {
+            @Override
+            public void run() {
+                minion.setValue("server", "host", "localhost");
+                value[0] = minion.read(new Minion.Reader<String>() {
+                    @Override
+                    public String read(Minion minion) {
+                        return minion.getValue("server", "host");
+                    }
+                });
+            }
+        });
+
+        assertEquals("localhost", value[0]);
+    }
+
+    @Test(timeout = 30000)
+    public void read_concurrentAtomicWrites_returnsConsistentValues() throws Exception {
+        final Minion minion = Minion.lets().sync();
+        final IniRecord host = minion.setValue("server", "host", "0");
+        final IniRecord port = minion.setValue("server", "port", "0");
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int counter = 0;
+                while (running.get()) {
+                    final String value = String.valueOf(++counter);
+                    minion.write(new Runnable() {
+                        @Override
+                        public void run() {
+                            host.setValue(value);
+                            port.setValue(value);
+                        }
+                    });
+                }
+            }
+        });
+        writer.start();
+        try {
+            for (int c = 0; c < 100000; c++) {
+                String[] values = minion.read(new Minion.Reader<String[]>() {
+                    @Override
+                    public String[] read(Minion minion) {
+                        return new String[]{
+                                minion.getValue("server", "host"),
+                                minion.getValue("server", "port")
+                        };
+                    }
+                });
+                assertEquals(values[0], values[1]);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void read_constantPlainWrites_completes() throws Exception {
+        final Minion minion = Minion.lets().sync();
+        final IniRecord record = minion.setValue("server", "host", "0");
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int counter = 0;
+                while (running.get()) {
+                    record.setValue(String.valueOf(++counter));
+                }
+            }
+        });
+        writer.start();
+        try {
+            for (int c = 0; c < 1000; c++) {
+                String value = minion.read(new Minion.Reader<String>() {
+                    @Override
+                    public String read(Minion minion) {
+                        String value = minion.getValue("server", "host");
+                        // Reader is slow enough to be invalidated on every optimistic attempt.
+                        Thread.yield();
+                        return value;
+                    }
+                });
+                Integer.parseInt(value);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.tomclaw.minion.storage.MemoryStorage;
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+public class PartialLoadUnitTest {
+
+    private static final String DATA = "[first]\nkey=1\n[second]\nkey=2\n" +
+            "# comment\n[third]\nkey=3";
+
+    @Test
+    public void loadGroups_byName_loadsOnlyChosenGroups() throws Exception {
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(DATA))
+                .and()
+                .loadGroups("first", "third")
+                .sync();
+
+        assertTrue(minion.isPartial());
+        assertArrayEquals(new String[]{"first", "third"}, minion.getGroupNames().toArray());
+        assertEquals("1", minion.getValue("first", "key"));
+        assertNull(minion.getGroup("second"));
+    }
+
+    @Test
+    public void loadGroups_byFilter_loadsOnlyAcceptedGroups() throws Exception {
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(DATA))
+                .and()
+                .loadGroups(new GroupFilter() {
+                    @Override
+                    public boolean accept(@NonNull String name) {
+                        return name.startsWith("s");
+                    }
+                })
+                .sync();
+
+        assertArrayEquals(new String[]{"second"}, minion.getGroupNames().toArray());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void setValue_unloadedGroup_throwException() throws Exception {
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(DATA))
+                .and()
+                .loadGroups("first")
+                .sync();
+
+        minion.setValue("second", "key", "value");
+    }
+
+    @Test
+    public void getValue_unloadedGroup_returnsDefault() throws Exception {
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(DATA))
+                .and()
+                .loadGroups("first")
+                .sync();
+
+        assertEquals("default", minion.getValue("second", "key", "default"));
+        assertNull(minion.getValues("second", "key"));
+        assertNull(minion.getLongArray("third", "key", null));
+        assertArrayEquals(new String[]{"first"}, minion.getGroupNames().toArray());
+    }
+
+    @Test
+    public void store_preservesUnloadedGroups() throws Exception {
+        MemoryStorage storage = MemoryStorage.create();
+        Minion full = Minion.lets()
+                .load(StringStorage.create(DATA))
+                .and()
+                .store(storage)
+                .sync();
+        full.store();
+        Minion partial = Minion.lets()
+                .load(storage)
+                .and()
+                .store(storage)
+                .and()
+                .loadGroups("second", "fourth")
+                .sync();
+
+        partial.getOrCreateGroup("second").getOrCreateRecord("key").setValue("changed");
+        partial.setValue("fourth", "key", "4");
+        partial.store();
+
+        Minion result = Minion.lets()
+                .load(storage)
+                .sync();
+        assertFalse(result.isPartial());
+        assertEquals(4, result.getGroupsCount());
+        assertEquals("1", result.getValue("first", "key"));
+        assertEquals("changed", result.getValue("second", "key"));
+        assertEquals("3", result.getValue("third", "key"));
+        assertEquals("4", result.getValue("fourth", "key"));
+    }
+
+}
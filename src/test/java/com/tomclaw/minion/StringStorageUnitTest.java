@@ -1,12 +1,15 @@
 package com.tomclaw.minion;
 
 import static com.tomclaw.minion.StreamHelper.readFully;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import com.tomclaw.minion.storage.StringStorage;
 
 import org.junit.Test;
 
+import java.nio.CharBuffer;
+
 /**
  * Created by solkin on 01.08.17.
  */
@@ -22,6 +25,26 @@ public class StringStorageUnitTest {
         assertEquals(data, read);
     }
 
+    @Test
+    public void readChars_returnsSameChars() {
+        String data = "sample data";
+        StringStorage storage = createStringStorage(data);
+
+        assertEquals(data, storage.readChars());
+    }
+
+    @Test
+    public void load_charBuffer_parsesChars() throws Exception {
+        CharBuffer chars = CharBuffer.wrap("[group]\r\nkey=значение, value\r\n[другая]\narray, line");
+
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(chars))
+                .sync();
+
+        assertArrayEquals(new String[]{"значение", "value"}, minion.getValues("group", "key"));
+        assertArrayEquals(new String[]{"array", "line"}, minion.getValues("другая", "array, line"));
+    }
+
     private StringStorage createStringStorage(String data) {
         return StringStorage.create(data);
     }
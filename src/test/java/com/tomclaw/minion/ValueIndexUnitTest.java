@@ -0,0 +1,85 @@
+package com.tomclaw.minion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.tomclaw.minion.storage.StringStorage;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ValueIndexUnitTest {
+
+    @Test
+    public void findGroups_returnsGroupsHoldingValue() throws Exception {
+        Minion minion = Minion.lets()
+                .indexValues("owner")
+                .sync();
+        minion.setValue("first", "owner", "alice");
+        minion.setValue("second", "owner", "bob");
+        minion.setValue("third", "owner", "alice");
+        minion.setValue("fourth", "creator", "alice");
+
+        assertEquals(setOf("first", "third"), minion.findGroups("owner", "alice"));
+        assertTrue(minion.findGroups("creator", "alice").isEmpty());
+    }
+
+    @Test
+    public void findRecords_anyKey_returnsRecordsWithArrayValues() throws Exception {
+        Minion minion = Minion.lets()
+                .indexValues()
+                .sync();
+        IniRecord record = minion.setValue("group", "tags", "red", "green");
+
+        Collection<IniRecord> records = minion.findRecords("tags", "green");
+
+        assertEquals(1, records.size());
+        assertSame(record, records.iterator().next());
+    }
+
+    @Test
+    public void index_updatedOnSetValueAndRemoval() throws Exception {
+        Minion minion = Minion.lets()
+                .indexValues("owner")
+                .sync();
+        IniRecord record = minion.setValue("first", "owner", "alice");
+        minion.setValue("second", "owner", "alice");
+        minion.setValue("third", "owner", "alice");
+
+        record.setValue("bob");
+        minion.removeRecord("second", "owner");
+        minion.removeGroup("third");
+
+        assertTrue(minion.findGroups("owner", "alice").isEmpty());
+        assertEquals(setOf("first"), minion.findGroups("owner", "bob"));
+    }
+
+    @Test
+    public void index_rebuiltAfterLoad() throws Exception {
+        String data = "[first]\nowner=alice\n[second]\nowner=bob\n[third]\nowner=alice";
+        Minion minion = Minion.lets()
+                .load(StringStorage.create(data))
+                .and()
+                .indexValues("owner")
+                .sync();
+
+        assertEquals(setOf("first", "third"), minion.findGroups("owner", "alice"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void findGroups_indexNotEnabled_throwException() {
+        Minion minion = Minion.lets().buildSimple();
+
+        minion.findGroups("owner", "alice");
+    }
+
+    private Set<String> setOf(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+}